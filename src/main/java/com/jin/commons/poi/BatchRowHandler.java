@@ -0,0 +1,252 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.ErrorRecord;
+import com.jin.commons.poi.model.SheetSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量导入的行处理
+ *
+ * @author wujinglei
+ * @ClassName: BatchRowHandler
+ * @Description: 将读取成功的行按固定条数分批，交给后台线程写入BatchSink；
+ * 未完成的批次达到上限时阻塞读取，直到写入线程跟上
+ */
+final class BatchRowHandler implements RowHandler<Object> {
+
+    private final static Logger log = LoggerFactory.getLogger(BatchRowHandler.class);
+
+    private final BatchSink batchSink;
+
+    private final SheetSettings[] sheets;
+
+    private final int batchSize;
+
+    /**
+     * 未完成批次的许可
+     */
+    private final Semaphore inFlightBatches;
+
+    /**
+     * 单线程写入，保证批次顺序
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    /**
+     * 以下结果只在写入线程中修改(写入线程结束后记录未提交的批次)，close之后读取
+     */
+    private final long[] successCounts;
+
+    private final long[] failedCounts;
+
+    private final List<ErrorRecord> errors = new ArrayList<ErrorRecord>();
+
+    /**
+     * 各sheet当前的批次，多sheet并行读取时互不影响
+     */
+    private final List[] batches;
+
+    private final int[] firstRowNums;
+
+    private final int[] lastRowNums;
+
+    BatchRowHandler(BatchSink batchSink, SheetSettings[] sheets, int batchSize, int maxInFlightBatches) {
+        this.batchSink = batchSink;
+        this.sheets = sheets;
+        this.batchSize = batchSize;
+        this.inFlightBatches = new Semaphore(maxInFlightBatches);
+        this.successCounts = new long[sheets.length];
+        this.failedCounts = new long[sheets.length];
+        this.batches = new List[sheets.length];
+        this.firstRowNums = new int[sheets.length];
+        this.lastRowNums = new int[sheets.length];
+    }
+
+    @Override
+    public void handle(int sheetIndex, int rowNum, Object rowData) {
+        List batch;
+        int previousRowNum;
+        synchronized (this) {
+            batch = batches[sheetIndex];
+            if (batch == null) {
+                batch = new ArrayList(batchSize);
+                batches[sheetIndex] = batch;
+            }
+            if (batch.isEmpty()) {
+                firstRowNums[sheetIndex] = rowNum;
+            }
+            previousRowNum = lastRowNums[sheetIndex];
+            lastRowNums[sheetIndex] = rowNum;
+            batch.add(rowData);
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+        try {
+            flush(sheetIndex);
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 被中断时导入随即停止，本行留在批次中，由close记为未提交
+                throw e;
+            }
+            // 本行由调用方记为出错，批次中的其他行保留，之后再提交
+            synchronized (this) {
+                batch.remove(batch.size() - 1);
+                lastRowNums[sheetIndex] = previousRowNum;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * sheet读取完成，提交该sheet剩余的数据；提交失败时保留，由close记录
+     *
+     * @param sheetIndex the sheet index
+     */
+    void finishSheet(int sheetIndex) {
+        try {
+            flush(sheetIndex);
+        } catch (IllegalStateException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 提交sheet的当前批次，写入线程落后时在此阻塞；
+     * 先取得许可再取出批次，等待许可时不持有锁，并行读取的其他sheet不受影响
+     *
+     * @param sheetIndex the sheet index
+     */
+    private void flush(final int sheetIndex) {
+        synchronized (this) {
+            if (batches[sheetIndex] == null || batches[sheetIndex].isEmpty()) {
+                return;
+            }
+        }
+        try {
+            inFlightBatches.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待批量写入时被中断", e);
+        }
+        final List thisBatch;
+        final int firstRowNum;
+        final String rows;
+        synchronized (this) {
+            thisBatch = batches[sheetIndex];
+            if (thisBatch == null || thisBatch.isEmpty()) {
+                inFlightBatches.release();
+                return;
+            }
+            firstRowNum = firstRowNums[sheetIndex];
+            rows = (firstRowNum + 1) + ":" + (lastRowNums[sheetIndex] + 1);
+            batches[sheetIndex] = null;
+        }
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        batchSink.write(sheetIndex, thisBatch);
+                        successCounts[sheetIndex] += thisBatch.size();
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                        failedCounts[sheetIndex] += thisBatch.size();
+                        errors.add(new ErrorRecord(sheets[sheetIndex].getSheetName(), rows, "批量写入失败(" + thisBatch.size() + "行)：" + e.getMessage(), "跳过本批处理", false));
+                    } finally {
+                        inFlightBatches.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // 未能交给写入线程时放回批次
+            synchronized (this) {
+                if (batches[sheetIndex] != null) {
+                    thisBatch.addAll(batches[sheetIndex]);
+                }
+                batches[sheetIndex] = thisBatch;
+                firstRowNums[sheetIndex] = firstRowNum;
+            }
+            inFlightBatches.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 提交剩余数据并等待所有批次写入完成，未能提交的批次记为写入失败
+     */
+    void close() {
+        try {
+            for (int sheetIndex = 0; sheetIndex < sheets.length; sheetIndex++) {
+                try {
+                    flush(sheetIndex);
+                } catch (IllegalStateException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        } finally {
+            writer.shutdown();
+            // 已提交的批次必须写完，结果才完整；中断时继续等待，结束后恢复中断状态
+            boolean interrupted = false;
+            while (!writer.isTerminated()) {
+                try {
+                    if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                        log.warn("等待批量写入完成");
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            recordUnsubmittedBatches();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 写入线程结束后，将仍未提交的批次记为写入失败
+     */
+    private synchronized void recordUnsubmittedBatches() {
+        for (int sheetIndex = 0; sheetIndex < sheets.length; sheetIndex++) {
+            List batch = batches[sheetIndex];
+            if (batch == null || batch.isEmpty()) {
+                continue;
+            }
+            failedCounts[sheetIndex] += batch.size();
+            errors.add(new ErrorRecord(sheets[sheetIndex].getSheetName(), (firstRowNums[sheetIndex] + 1) + ":" + (lastRowNums[sheetIndex] + 1),
+                    "批量写入未提交(" + batch.size() + "行)：等待批量写入时被中断", "跳过本批处理", false));
+            batches[sheetIndex] = null;
+        }
+    }
+
+    /**
+     * 将写入结果记录到result中
+     *
+     * @param result the result
+     */
+    void writeResult(OfficeIoResult result) {
+        Long[] failedTotal = new Long[sheets.length];
+        for (int sheetIndex = 0; sheetIndex < sheets.length; sheetIndex++) {
+            if (result.getResultTotal() != null && result.getResultTotal()[sheetIndex] != null) {
+                result.getResultTotal()[sheetIndex] = successCounts[sheetIndex];
+            }
+            failedTotal[sheetIndex] = failedCounts[sheetIndex];
+        }
+        result.setFailedTotal(failedTotal);
+        for (ErrorRecord errorRecord : errors) {
+            result.addErrorRecord(errorRecord);
+        }
+        if (!errors.isEmpty()) {
+            result.setCompleted(false);
+        }
+    }
+}
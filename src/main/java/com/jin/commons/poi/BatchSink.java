@@ -0,0 +1,23 @@
+package com.jin.commons.poi;
+
+import java.util.List;
+
+/**
+ * 批量导入写入
+ *
+ * @param <T> the type parameter
+ * @author wujinglei
+ * @ClassName: BatchSink
+ * @Description: 导入数据按批次交给调用方写入(如批量入库)
+ */
+public interface BatchSink<T> {
+
+    /**
+     * 写入一批数据，在后台写入线程中按读取顺序调用，抛出异常时该批数据记为写入失败
+     *
+     * @param sheetIndex the sheet index
+     * @param batch      同一sheet中的一批数据
+     * @throws Exception the exception
+     */
+    void write(int sheetIndex, List<T> batch) throws Exception;
+}
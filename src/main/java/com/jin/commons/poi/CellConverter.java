@@ -0,0 +1,349 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.exception.XSSFCellTypeException;
+import com.jin.commons.poi.model.CellDataType;
+import com.jin.commons.poi.utils.CellDataConverter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.math.BigDecimal;
+
+/**
+ * 单元格数据转换
+ *
+ * @author wujinglei
+ * @ClassName: CellConverter
+ * @Description: 按列的数据类型在编译sheet配置时选定，导入导出时每个单元格不再按类型判断
+ */
+abstract class CellConverter {
+
+    private static final CellConverter AUTO = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) {
+            return cellValue;
+        }
+    };
+
+    private static final CellConverter VARCHAR = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) {
+            // XLS格式为数据的，去掉最后的.0
+            if (activeRow.getCellType(columnIndex) == CellType.NUMERIC) {
+                return CellDataConverter.matchNumber2Varchar(cellValue);
+            }
+            return cellValue;
+        }
+
+        @Override
+        Object convertNumber(double number) {
+            return CellDataConverter.number2Varchar(number);
+        }
+    };
+
+    private static final CellConverter DECIMAL = new CellConverter(CellType.NUMERIC) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : new BigDecimal(cellValue);
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Number: " + e.getMessage());
+            }
+        }
+
+        @Override
+        Object convertNumber(double number) {
+            BigDecimal decimal = BigDecimal.valueOf(number);
+            return decimal.scale() < 0 ? decimal.setScale(0) : decimal;
+        }
+    };
+
+    private static final CellConverter DOUBLE = new CellConverter(CellType.NUMERIC) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : Double.valueOf(cellValue);
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Number: " + e.getMessage());
+            }
+        }
+
+        @Override
+        Object convertNumber(double number) {
+            // 与文本转换一致，-0.0按0处理
+            return Double.valueOf(number + 0.0d);
+        }
+    };
+
+    /**
+     * 由文本转换，避免double、float两次舍入
+     */
+    private static final CellConverter FLOAT = new CellConverter(CellType.NUMERIC) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : Float.valueOf(cellValue);
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Number: " + e.getMessage());
+            }
+        }
+    };
+
+    private static final CellConverter INTEGER = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : Integer.valueOf(CellDataConverter.matchNumber2Varchar(cellValue));
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Integer: " + e.getMessage());
+            }
+        }
+
+        @Override
+        Object convertNumber(double number) {
+            if (CellDataConverter.isSafeLong(number) && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                return Integer.valueOf((int) number);
+            }
+            return null;
+        }
+
+        @Override
+        Object toCellValue(Object value) {
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return Integer.valueOf(((Number) value).intValue());
+            }
+            return super.toCellValue(value);
+        }
+
+        @Override
+        Object toCellValue(String value) {
+            return Integer.valueOf(value);
+        }
+    };
+
+    private static final CellConverter BIGINT = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : Long.valueOf(CellDataConverter.matchNumber2Varchar(cellValue));
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Long: " + e.getMessage());
+            }
+        }
+
+        @Override
+        Object convertNumber(double number) {
+            if (CellDataConverter.isSafeLong(number)) {
+                return Long.valueOf((long) number);
+            }
+            return null;
+        }
+
+        @Override
+        Object toCellValue(Object value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return Long.valueOf(((Number) value).longValue());
+            }
+            return super.toCellValue(value);
+        }
+
+        @Override
+        Object toCellValue(String value) {
+            return Long.valueOf(value);
+        }
+    };
+
+    private static final CellConverter BOOLEAN = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) {
+            return "".equals(cellValue) ? cellValue : Boolean.valueOf(cellValue);
+        }
+
+        @Override
+        Object toCellValue(Object value) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            return super.toCellValue(value);
+        }
+
+        @Override
+        Object toCellValue(String value) {
+            return Boolean.valueOf(value);
+        }
+    };
+
+    private static final CellConverter DATE = new CellConverter(CellType.STRING) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            try {
+                return "".equals(cellValue) ? cellValue : CellDataConverter.str2Date(cellValue);
+            } catch (Exception e) {
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to DATE: " + e.getMessage());
+            }
+        }
+    };
+
+    /**
+     * 字段类型无法对应CellDataType时
+     */
+    private static final CellConverter UNSUPPORTED = new CellConverter(null) {
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) {
+            throw new IllegalStateException("Unsupported cell data type: " + activeRow.getAddress(columnIndex));
+        }
+
+        @Override
+        void writeCellValue(Cell cell, Object value) {
+            throw new IllegalStateException("Unsupported cell data type: " + cell.getAddress().formatAsString());
+        }
+    };
+
+    /**
+     * 导出时创建单元格的类型，为null时不设置
+     */
+    private final CellType cellType;
+
+    private CellConverter(CellType cellType) {
+        this.cellType = cellType;
+    }
+
+    /**
+     * 按列的数据类型选定转换
+     *
+     * @param cellDataType the cell data type
+     * @param cellClass    the cell class
+     * @param key          the key
+     * @return the cell converter
+     */
+    static CellConverter of(CellDataType cellDataType, Class cellClass, String key) {
+        if (cellDataType == null) {
+            return UNSUPPORTED;
+        }
+        switch (cellDataType) {
+            case AUTO:
+                return AUTO;
+            case VARCHAR:
+                return VARCHAR;
+            case NUMBER:
+                if (cellClass == Double.class) {
+                    return DOUBLE;
+                }
+                if (cellClass == Float.class) {
+                    return FLOAT;
+                }
+                return DECIMAL;
+            case INTEGER:
+                return INTEGER;
+            case BIGINT:
+                return BIGINT;
+            case BOOLEAN:
+                return BOOLEAN;
+            case DATE:
+                return DATE;
+            case FORMULA:
+                return new FormulaConverter(key);
+            default:
+                return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * 单元格文本转换为列的类型
+     *
+     * @param cellValue   单元格文本，不为null
+     * @param activeRow   the active row
+     * @param columnIndex the column index
+     * @return the object
+     * @throws XSSFCellTypeException 无法转换时
+     */
+    abstract Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException;
+
+    /**
+     * 数字单元格直接转换为列的类型，不经过文本
+     *
+     * @param number 非NaN、非无穷的数字
+     * @return 与按文本转换的结果相同；无法直接转换时返回null，按文本转换
+     */
+    Object convertNumber(double number) {
+        return null;
+    }
+
+    /**
+     * 导出时创建单元格的类型
+     *
+     * @return 为null时不设置
+     */
+    CellType getCellType() {
+        return cellType;
+    }
+
+    /**
+     * 导出时将对象的属性值转换为写入单元格的值，数字、布尔值按原类型直接转换，不经过文本；
+     * Float与非有限的数字仍按文本转换，与按文本写入的结果一致
+     *
+     * @param value 非null的属性值
+     * @return Number、Boolean或String，文本为空时返回null
+     */
+    Object toCellValue(Object value) {
+        if (cellType == CellType.NUMERIC && value instanceof Number && !(value instanceof Float)) {
+            double number = ((Number) value).doubleValue();
+            if (!Double.isNaN(number) && !Double.isInfinite(number)) {
+                // 与文本转换一致，-0.0按0处理
+                return Double.valueOf(number + 0.0d);
+            }
+        }
+        String text = String.valueOf(value);
+        return StringUtils.isBlank(text) ? null : toCellValue(text);
+    }
+
+    /**
+     * 导出时将文本转换为写入单元格的值，不涉及单元格，可在写入线程之外执行
+     *
+     * @param value 非空的文本
+     * @return Number、Boolean或String
+     */
+    Object toCellValue(String value) {
+        if (cellType == CellType.NUMERIC) {
+            return Double.valueOf(new BigDecimal(value).doubleValue());
+        }
+        return value;
+    }
+
+    /**
+     * 导出时写入单元格
+     *
+     * @param cell  the cell
+     * @param value toCellValue转换后的值
+     */
+    void writeCellValue(Cell cell, Object value) {
+        if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else {
+            cell.setCellValue(String.valueOf(value));
+        }
+    }
+
+    /**
+     * 公式列，读取公式的计算结果
+     */
+    private static final class FormulaConverter extends CellConverter {
+
+        private final String key;
+
+        FormulaConverter(String key) {
+            super(CellType.STRING);
+            this.key = key;
+        }
+
+        @Override
+        Object convert(String cellValue, SheetRow activeRow, int columnIndex) throws XSSFCellTypeException {
+            if (CellType.FORMULA == activeRow.getCellType(columnIndex)) {
+                return activeRow.getFormulaNumberValue(columnIndex);
+            }
+            throw new XSSFCellTypeException("Cell Type error,Cell Type is not FORMULA: " + key);
+        }
+    }
+}
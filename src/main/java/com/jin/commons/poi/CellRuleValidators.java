@@ -0,0 +1,274 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.CellRule;
+import com.jin.commons.poi.model.CellValidator;
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigDecimal;
+
+/**
+ * CellRule的校验
+ *
+ * @author wujinglei
+ * @ClassName: CellRuleValidators
+ * @Description: 按CellRule在编译sheet配置时选定校验，直接检查转换后的值；
+ * 通过时不转换为文本、不以异常判断能否解析为数字
+ */
+final class CellRuleValidators {
+
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private static final BigDecimal INTEGER_MIN = BigDecimal.valueOf(Integer.MIN_VALUE);
+
+    private static final BigDecimal INTEGER_MAX = BigDecimal.valueOf(Integer.MAX_VALUE);
+
+    private static final CellValidator REQUIRED = new CellValidator() {
+        @Override
+        public String validate(Object value) {
+            if (value == null || value instanceof CharSequence && StringUtils.isBlank((CharSequence) value)) {
+                return "当前列不能为空";
+            }
+            return null;
+        }
+    };
+
+    private static final CellValidator LONG = new CellValidator() {
+        @Override
+        public String validate(Object value) {
+            return isBlankText(value) || isLong(value) ? null : "当前列预设值不是长整型";
+        }
+    };
+
+    private static final CellValidator INTEGER = new CellValidator() {
+        @Override
+        public String validate(Object value) {
+            return isBlankText(value) || isInteger(value) ? null : "当前列预设值不是整型";
+        }
+    };
+
+    private static final CellValidator DOUBLE = new CellValidator() {
+        @Override
+        public String validate(Object value) {
+            return isBlankText(value) || isDouble(value) ? null : "当前列预设值不是浮点型";
+        }
+    };
+
+    private CellRuleValidators() {
+    }
+
+    /**
+     * 取得CellRule对应的校验
+     *
+     * @param cellRule      the cell rule
+     * @param cellRuleValue the cell rule value
+     * @return 未设置CellRule时返回null
+     */
+    static CellValidator of(CellRule cellRule, final Object cellRuleValue) {
+        if (cellRule == null) {
+            return null;
+        }
+        switch (cellRule) {
+            case REQUIRED:
+                return REQUIRED;
+            case EQUALSTO:
+                return new CellValidator() {
+                    @Override
+                    public String validate(Object value) {
+                        if (cellRuleValue == null ? value != null : !cellRuleValue.equals(value)) {
+                            return "当前列预设值" + cellRuleValue + "与读取出的值" + value + "不相等";
+                        }
+                        return null;
+                    }
+                };
+            case LONG:
+                return LONG;
+            case INTEGER:
+                return INTEGER;
+            case DOUBLE:
+                return DOUBLE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 空白文本不做数字校验
+     */
+    private static boolean isBlankText(Object value) {
+        return value instanceof CharSequence && StringUtils.isBlank((CharSequence) value);
+    }
+
+    /**
+     * 与Long.parseLong(String.valueOf(value))能否成功一致
+     */
+    private static boolean isLong(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof BigDecimal) {
+            return isIntegral((BigDecimal) value, LONG_MIN, LONG_MAX);
+        }
+        if (value == null || value instanceof Double || value instanceof Float) {
+            return false;
+        }
+        return isIntegral(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value), Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 与Integer.parseInt(String.valueOf(value))能否成功一致
+     */
+    private static boolean isInteger(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof Long) {
+            long longValue = (Long) value;
+            return longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE;
+        }
+        if (value instanceof BigDecimal) {
+            return isIntegral((BigDecimal) value, INTEGER_MIN, INTEGER_MAX);
+        }
+        if (value == null || value instanceof Double || value instanceof Float) {
+            return false;
+        }
+        return isIntegral(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 与Double.parseDouble(String.valueOf(value))能否成功一致
+     */
+    private static boolean isDouble(Object value) {
+        if (value instanceof Number) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        return isDouble(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+    }
+
+    /**
+     * BigDecimal的文本为不带小数点、指数的整数
+     */
+    private static boolean isIntegral(BigDecimal value, BigDecimal min, BigDecimal max) {
+        return value.scale() == 0 && value.compareTo(min) >= 0 && value.compareTo(max) <= 0;
+    }
+
+    /**
+     * 按Long.parseLong的规则检查十进制整数文本
+     */
+    private static boolean isIntegral(CharSequence text, long min, long max) {
+        int length = text.length();
+        if (length == 0) {
+            return false;
+        }
+        int i = 0;
+        long limit = -max;
+        char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return false;
+            }
+            if (first == '-') {
+                limit = min;
+            }
+            i++;
+        }
+        // 按负数累加，避免溢出
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0 || result < multmin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * 按Double.parseDouble的规则检查浮点数文本
+     */
+    private static boolean isDouble(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            i++;
+        }
+        if (matchesRest(text, i, end, "NaN") || matchesRest(text, i, end, "Infinity")) {
+            return true;
+        }
+        // 十六进制浮点数很少出现，直接解析
+        if (i + 1 < end && text.charAt(i) == '0' && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X')) {
+            try {
+                Double.parseDouble(text.toString());
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        int digits = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(text.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && isDigit(text.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        if (i < end && "fFdD".indexOf(text.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == end;
+    }
+
+    private static boolean matchesRest(CharSequence text, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,86 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.CellStyleSettings;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导出工作簿的单元格样式
+ *
+ * @author wujinglei
+ * @ClassName: CellStylePool
+ * @Description: 一个工作簿中按CellStyleSettings的取值与表头/数据区分共用CellStyle，
+ * 相同的样式只创建一次，避免按单元格创建样式超过Excel的样式数量上限；
+ * CellStyleSettings可以修改，按取值而不是按实例区分
+ */
+final class CellStylePool {
+
+    private final Workbook workbook;
+
+    private final Map<List<Object>, CellStyle> styles = new HashMap<List<Object>, CellStyle>();
+
+    CellStylePool(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    Workbook getWorkbook() {
+        return workbook;
+    }
+
+    /**
+     * 取得已创建的样式
+     *
+     * @param key the key
+     * @return 未创建时返回null
+     */
+    CellStyle get(List<Object> key) {
+        return styles.get(key);
+    }
+
+    void put(List<Object> key, CellStyle style) {
+        styles.put(key, style);
+    }
+
+    /**
+     * 样式的取值
+     *
+     * @param styleSettings the style settings
+     * @param isTitle       the is title
+     * @return the key
+     */
+    static List<Object> key(CellStyleSettings styleSettings, boolean isTitle) {
+        if (styleSettings == null) {
+            return Arrays.<Object>asList(isTitle);
+        }
+        if (isTitle) {
+            return Arrays.<Object>asList(true, styleSettings.getTitleForegroundColor(), borderKey(styleSettings.getTitleBorder()),
+                    styleSettings.getTitleFont(), styleSettings.getTitleFontColor(), styleSettings.getTitleSize());
+        }
+        return Arrays.<Object>asList(false, styleSettings.getDataForegroundColor(), borderKey(styleSettings.getDataBorder()),
+                styleSettings.getDataFont(), styleSettings.getDataFontColor(), styleSettings.getDataSize());
+    }
+
+    /**
+     * 带单元格格式的样式的取值，日期列按格式区分
+     *
+     * @param styleSettings the style settings
+     * @param isTitle       the is title
+     * @param dataFormat    单元格格式
+     * @return the key
+     */
+    static List<Object> key(CellStyleSettings styleSettings, boolean isTitle, String dataFormat) {
+        List<Object> key = new ArrayList<Object>(key(styleSettings, isTitle));
+        key.add(dataFormat);
+        return key;
+    }
+
+    private static List<Object> borderKey(Object[] border) {
+        return border == null ? null : Arrays.asList(border.clone());
+    }
+}
@@ -0,0 +1,103 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.utils.BeanSetter;
+import com.jin.commons.poi.utils.BeanUtils;
+
+import java.util.Map;
+
+/**
+ * 导入时将单元格的值放入行数据对象
+ *
+ * @author wujinglei
+ * @ClassName: ColumnBinder
+ * @Description: 按sheet的数据类型在编译sheet配置时选定Map或bean，导入时每个单元格不再判断行对象的类型
+ */
+abstract class ColumnBinder {
+
+    /**
+     * 选定Map或bean
+     *
+     * @param dataClazzType the data clazz type
+     * @param key           the key
+     * @param cellClass     the cell class
+     * @return the column binder
+     */
+    static ColumnBinder of(Class dataClazzType, String key, Class cellClass) {
+        if (dataClazzType == null || Map.class.isAssignableFrom(dataClazzType)) {
+            return new MapBinder(key);
+        }
+        return new BeanBinder(dataClazzType, key, cellClass);
+    }
+
+    /**
+     * 放入值
+     *
+     * @param targetObj the target obj
+     * @param value     the value
+     */
+    abstract void bind(Object targetObj, Object value);
+
+    /**
+     * 行数据对象为Map
+     */
+    static final class MapBinder extends ColumnBinder {
+
+        private final String key;
+
+        MapBinder(String key) {
+            this.key = key;
+        }
+
+        @Override
+        void bind(Object targetObj, Object value) {
+            ((Map) targetObj).put(key, value);
+        }
+    }
+
+    /**
+     * 行数据对象为bean，编译时按字段类型解析setter，导入时直接调用
+     */
+    static final class BeanBinder extends ColumnBinder {
+
+        private final String key;
+
+        private final Class cellClass;
+
+        /**
+         * 字段类型未知时为null，按值的类型查找setter
+         */
+        private final BeanSetter setter;
+
+        /**
+         * 解析setter失败的异常，与按名称调用时一样在放入值时抛出
+         */
+        private final RuntimeException setterException;
+
+        BeanBinder(Class dataClazzType, String key, Class cellClass) {
+            this.key = key;
+            this.cellClass = cellClass;
+            BeanSetter resolved = null;
+            RuntimeException exception = null;
+            if (cellClass != null) {
+                try {
+                    resolved = BeanUtils.setter(dataClazzType, key, cellClass);
+                } catch (RuntimeException e) {
+                    exception = e;
+                }
+            }
+            this.setter = resolved;
+            this.setterException = exception;
+        }
+
+        @Override
+        void bind(Object targetObj, Object value) {
+            if (setter != null) {
+                setter.set(targetObj, value);
+            } else if (setterException != null) {
+                throw setterException;
+            } else {
+                BeanUtils.invokeSetter(targetObj, key, value, cellClass);
+            }
+        }
+    }
+}
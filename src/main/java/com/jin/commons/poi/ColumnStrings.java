@@ -0,0 +1,54 @@
+package com.jin.commons.poi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 出错行文本的按列共用
+ *
+ * @author wujinglei
+ * @ClassName: ColumnStrings
+ * @Description: 一个sheet中出错行的文本按列共用同一个String实例，同一列的重复内容只保存一份；
+ * 每列最多记录MAX_STRINGS_PER_COLUMN个不同的文本，超过后不再共用，避免取值各不相同的列(如编号)占用更多内存
+ */
+final class ColumnStrings {
+
+    private static final int MAX_STRINGS_PER_COLUMN = 4096;
+
+    /**
+     * 列序号 -> 文本，流水线处理时会被多个线程读写
+     */
+    private final ConcurrentMap<Integer, ConcurrentMap<String, String>> columns = new ConcurrentHashMap<Integer, ConcurrentMap<String, String>>();
+
+    /**
+     * 取得列中共用的文本
+     *
+     * @param columnStrings 为空时不共用
+     * @param columnIndex   the column index
+     * @param value         the value
+     * @return the string
+     */
+    static String intern(ColumnStrings columnStrings, int columnIndex, String value) {
+        if (columnStrings == null || value == null) {
+            return value;
+        }
+        return columnStrings.intern(columnIndex, value);
+    }
+
+    private String intern(int columnIndex, String value) {
+        ConcurrentMap<String, String> strings = columns.get(columnIndex);
+        if (strings == null) {
+            columns.putIfAbsent(columnIndex, new ConcurrentHashMap<String, String>());
+            strings = columns.get(columnIndex);
+        }
+        String string = strings.get(value);
+        if (string != null) {
+            return string;
+        }
+        if (strings.size() >= MAX_STRINGS_PER_COLUMN) {
+            return value;
+        }
+        string = strings.putIfAbsent(value, value);
+        return string != null ? string : value;
+    }
+}
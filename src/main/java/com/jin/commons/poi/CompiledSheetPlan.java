@@ -0,0 +1,537 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.exception.SheetIndexException;
+import com.jin.commons.poi.model.CellDataType;
+import com.jin.commons.poi.model.CellRule;
+import com.jin.commons.poi.model.CellSelectSettings;
+import com.jin.commons.poi.model.CellSettings;
+import com.jin.commons.poi.model.CellStyleSettings;
+import com.jin.commons.poi.model.CellValidator;
+import com.jin.commons.poi.model.DatePattern;
+import com.jin.commons.poi.model.FormulaSettings;
+import com.jin.commons.poi.model.SheetSettings;
+import com.jin.commons.poi.utils.BeanGetter;
+import com.jin.commons.poi.utils.BeanUtils;
+import com.jin.commons.poi.utils.FieldUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.util.CellReference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 编译后的sheet配置
+ *
+ * @author wujinglei
+ * @ClassName: CompiledSheetPlan
+ * @Description: 由SheetSettings与数据类型一次性计算出列地址、跳过行数、公式分组、字段类型等信息，
+ * 创建后不再修改，可在多次导入导出及多个线程间共用；不修改调用方的SheetSettings
+ */
+final class CompiledSheetPlan {
+
+    /**
+     * 按SheetSettings缓存，SheetSettings不再使用时随之回收
+     */
+    private static final Map<SheetSettings, CompiledSheetPlan> PLAN_CACHE = Collections.synchronizedMap(new WeakHashMap<SheetSettings, CompiledSheetPlan>());
+
+    private final String sheetName;
+
+    private final String title;
+
+    private final CellStyleSettings titleStyle;
+
+    private final Class dataClazzType;
+
+    /**
+     * SheetSettings中设置的表序号，为空时使用sheet在数组中的位置
+     */
+    private final Integer sheetSeq;
+
+    /**
+     * SheetSettings中设置的跳过行数
+     */
+    private final Integer skipRowsSetting;
+
+    /**
+     * 实际跳过的行数(含标题行与表头)
+     */
+    private final int skipRows;
+
+    private final CellSettings[] cellSettings;
+
+    /**
+     * 编译时cellSettings中的各列与其子列，用于检查数组中的元素是否被替换过
+     */
+    private final CellSettings[] compiledCells;
+
+    private final CellSettings[][] compiledSubCells;
+
+    /**
+     * 按Excel列顺序展开(含子列)的列信息
+     */
+    private final ColumnPlan[] columns;
+
+    private final Map<String, String> cellAddressMap;
+
+    private final Set<String> selectTargetSet;
+
+    private CompiledSheetPlan(SheetSettings sheetSettings) {
+        this.sheetName = sheetSettings.getSheetName();
+        this.title = sheetSettings.getTitle();
+        this.titleStyle = sheetSettings.getTitleStyle();
+        this.dataClazzType = sheetSettings.getDataClazzType();
+        this.sheetSeq = sheetSettings.getSheetSeq();
+        this.skipRowsSetting = sheetSettings.getSkipRows();
+        this.cellSettings = sheetSettings.getCellSettings();
+        this.compiledCells = cellSettings.clone();
+        this.compiledSubCells = new CellSettings[cellSettings.length][];
+
+        // 展开子列
+        List<CellSettings> leafCells = new ArrayList<CellSettings>();
+        List<Boolean> subCellFlags = new ArrayList<Boolean>();
+        boolean hasSubCells = false;
+        for (int cellIndex = 0; cellIndex < compiledCells.length; cellIndex++) {
+            CellSettings thisCell = compiledCells[cellIndex];
+            if (thisCell.getSubCells() != null) {
+                hasSubCells = true;
+                compiledSubCells[cellIndex] = thisCell.getSubCells().clone();
+                for (CellSettings subCell : compiledSubCells[cellIndex]) {
+                    leafCells.add(subCell);
+                    subCellFlags.add(true);
+                }
+            } else {
+                leafCells.add(thisCell);
+                subCellFlags.add(false);
+            }
+        }
+
+        // checkSkipRow
+        int thisSkipRows = skipRowsSetting != null ? skipRowsSetting : (hasSubCells ? 2 : 1);
+        if (!StringUtils.isBlank(title)) {
+            thisSkipRows++;
+        }
+        this.skipRows = thisSkipRows;
+
+        // 列地址、联动下拉的Target与公式分组
+        Map<String, String> addressMap = new HashMap<String, String>();
+        Set<String> targetSet = new HashSet<String>();
+        Map<String, Set<String>> formulaMap = new HashMap<String, Set<String>>();
+        for (int columnIndex = 0; columnIndex < leafCells.size(); columnIndex++) {
+            CellSettings thisCell = leafCells.get(columnIndex);
+            addressMap.put(thisCell.getKey(), CellReference.convertNumToColString(columnIndex));
+            if (thisCell.getCellDataType() != CellDataType.FORMULA && thisCell.getFormulaGroupNames() != null) {
+                for (String groupName : thisCell.getFormulaGroupNames()) {
+                    Set<String> group = formulaMap.get(groupName);
+                    if (group == null) {
+                        group = new HashSet<String>();
+                        formulaMap.put(groupName, group);
+                    }
+                    group.add(thisCell.getKey());
+                }
+            }
+            if (thisCell.getSelectCascadeFlag()) {
+                targetSet.add(thisCell.getSelectTargetKey());
+            }
+        }
+        this.cellAddressMap = Collections.unmodifiableMap(addressMap);
+        this.selectTargetSet = Collections.unmodifiableSet(targetSet);
+
+        // 字段类型
+        this.columns = new ColumnPlan[leafCells.size()];
+        for (int columnIndex = 0; columnIndex < leafCells.size(); columnIndex++) {
+            CellSettings thisCell = leafCells.get(columnIndex);
+            Class cellClass = thisCell.getCellClass();
+            CellDataType cellDataType = thisCell.getCellDataType();
+            if (dataClazzType != null && cellDataType != CellDataType.FORMULA && (subCellFlags.get(columnIndex) || cellClass == null)) {
+                cellClass = FieldUtils.getDeclaredFieldType(dataClazzType, thisCell.getKey());
+                cellDataType = FieldUtils.getCellDataType(cellClass);
+            }
+            Set<String> formulaGroup = null;
+            if (cellDataType == CellDataType.FORMULA && thisCell.getFormulaGroupNames() != null && formulaMap.get(thisCell.getFormulaGroupNames()[0]) != null) {
+                formulaGroup = Collections.unmodifiableSet(formulaMap.get(thisCell.getFormulaGroupNames()[0]));
+            }
+            String selectName = null;
+            if (thisCell.getSelect() && !thisCell.getSelectCascadeFlag()) {
+                selectName = FormulaNames.digest(thisCell.getKey() + "_TEXT");
+            }
+            // 无静态值、非下拉的列，数字单元格可直接转换
+            boolean directNumber = !thisCell.getHasStaticValue() && !thisCell.getSelect() && !targetSet.contains(thisCell.getKey());
+            columns[columnIndex] = new ColumnPlan(thisCell, columnIndex, cellClass, cellDataType, formulaGroup, selectName,
+                    CellConverter.of(cellDataType, cellClass, thisCell.getKey()), ColumnBinder.of(dataClazzType, thisCell.getKey(), cellClass),
+                    targetSet.contains(thisCell.getKey()), directNumber);
+        }
+    }
+
+    /**
+     * 取得SheetSettings对应的配置，SheetSettings的设置有变化时重新编译
+     *
+     * @param sheetSettings the sheet settings
+     * @return the compiled sheet plan
+     * @throws SheetIndexException 配置无法编译时
+     */
+    static CompiledSheetPlan of(SheetSettings sheetSettings) throws SheetIndexException {
+        CompiledSheetPlan plan = PLAN_CACHE.get(sheetSettings);
+        if (plan == null || !plan.matches(sheetSettings)) {
+            try {
+                plan = new CompiledSheetPlan(sheetSettings);
+            } catch (Exception e) {
+                throw new SheetIndexException(e.getMessage(), e);
+            }
+            PLAN_CACHE.put(sheetSettings, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 编译后SheetSettings是否被修改过，包括替换cellSettings中的元素、修改CellSettings的设置
+     *
+     * @param sheetSettings the sheet settings
+     * @return the boolean
+     */
+    private boolean matches(SheetSettings sheetSettings) {
+        return cellSettings == sheetSettings.getCellSettings()
+                && dataClazzType == sheetSettings.getDataClazzType()
+                && titleStyle == sheetSettings.getTitleStyle()
+                && StringUtils.equals(sheetName, sheetSettings.getSheetName())
+                && StringUtils.equals(title, sheetSettings.getTitle())
+                && equals(sheetSeq, sheetSettings.getSheetSeq())
+                && equals(skipRowsSetting, sheetSettings.getSkipRows())
+                && cellsMatch()
+                && settingsMatch();
+    }
+
+    private boolean cellsMatch() {
+        if (cellSettings.length != compiledCells.length) {
+            return false;
+        }
+        for (int cellIndex = 0; cellIndex < compiledCells.length; cellIndex++) {
+            if (cellSettings[cellIndex] != compiledCells[cellIndex]) {
+                return false;
+            }
+            CellSettings[] subCells = compiledCells[cellIndex].getSubCells();
+            if (subCells == null ? compiledSubCells[cellIndex] != null : !Arrays.equals(subCells, compiledSubCells[cellIndex])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean settingsMatch() {
+        for (ColumnPlan column : columns) {
+            if (!column.settingsMatch()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 表序号，未设置时为sheet在数组中的位置
+     *
+     * @param sheetIndex the sheet index
+     * @return the sheet seq
+     */
+    int getSheetSeq(int sheetIndex) {
+        return sheetSeq != null ? sheetSeq : sheetIndex;
+    }
+
+    String getSheetName() {
+        return sheetName;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    boolean hasTitle() {
+        return !StringUtils.isBlank(title);
+    }
+
+    CellStyleSettings getTitleStyle() {
+        return titleStyle;
+    }
+
+    Class getDataClazzType() {
+        return dataClazzType;
+    }
+
+    int getSkipRows() {
+        return skipRows;
+    }
+
+    CellSettings[] getCellSettings() {
+        return cellSettings;
+    }
+
+    ColumnPlan[] getColumns() {
+        return columns;
+    }
+
+    int getCellCount() {
+        return columns.length;
+    }
+
+    String getCellAddress(String key) {
+        return cellAddressMap.get(key);
+    }
+
+    boolean isSelectTarget(String key) {
+        return selectTargetSet.contains(key);
+    }
+
+    boolean hasSelectTarget() {
+        return !selectTargetSet.isEmpty();
+    }
+
+    /**
+     * 单列的配置
+     */
+    static final class ColumnPlan {
+
+        private final CellSettings cellSettings;
+
+        /**
+         * Excel中的列序号
+         */
+        private final int columnIndex;
+
+        private final Class cellClass;
+
+        private final CellDataType cellDataType;
+
+        /**
+         * 公式列所引用的列
+         */
+        private final Set<String> formulaGroup;
+
+        /**
+         * 无联动下拉在工作簿中的名称
+         */
+        private final String selectName;
+
+        private final CellConverter converter;
+
+        private final ColumnBinder binder;
+
+        /**
+         * 行数据对象无法实例化、改用Map时
+         */
+        private final ColumnBinder mapBinder;
+
+        /**
+         * 是否为联动下拉的Target
+         */
+        private final boolean selectTarget;
+
+        /**
+         * 数字单元格是否直接转换，不经过文本
+         */
+        private final boolean directNumber;
+
+        /**
+         * CellRule与自定义校验编译后的校验链
+         */
+        private final CellValidator[] validators;
+
+        /**
+         * 编译时CellSettings的设置，用于检查CellSettings是否被修改过
+         */
+        private final CellRule cellRule;
+
+        private final Object cellRuleValue;
+
+        private final CellValidator[] cellValidators;
+
+        private final String key;
+
+        private final Class settingsCellClass;
+
+        private final CellDataType settingsCellDataType;
+
+        private final String[] formulaGroupNames;
+
+        private final FormulaSettings formulaSettings;
+
+        private final boolean select;
+
+        private final CellSelectSettings cellSelectSettings;
+
+        private final boolean selectCascadeFlag;
+
+        private final String selectTargetKey;
+
+        private final boolean hasStaticValue;
+
+        private final String staticValue;
+
+        private final boolean fixedValue;
+
+        private final Map<String, Object> fixedMap;
+
+        private final DatePattern pattern;
+
+        private final CellStyleSettings cellStyleSettings;
+
+        private final boolean skip;
+
+        /**
+         * 导出时最近一次解析的getter，数据对象的类不变时不再查找
+         */
+        private volatile BeanGetter getter;
+
+        ColumnPlan(CellSettings cellSettings, int columnIndex, Class cellClass, CellDataType cellDataType, Set<String> formulaGroup, String selectName,
+                   CellConverter converter, ColumnBinder binder, boolean selectTarget, boolean directNumber) {
+            this.cellSettings = cellSettings;
+            this.columnIndex = columnIndex;
+            this.cellClass = cellClass;
+            this.cellDataType = cellDataType;
+            this.formulaGroup = formulaGroup;
+            this.selectName = selectName;
+            this.converter = converter;
+            this.binder = binder;
+            this.mapBinder = binder instanceof ColumnBinder.MapBinder ? binder : new ColumnBinder.MapBinder(cellSettings.getKey());
+            this.selectTarget = selectTarget;
+            this.directNumber = directNumber;
+            this.key = cellSettings.getKey();
+            this.settingsCellClass = cellSettings.getCellClass();
+            this.settingsCellDataType = cellSettings.getCellDataType();
+            this.formulaGroupNames = copyOf(cellSettings.getFormulaGroupNames());
+            this.formulaSettings = cellSettings.getFormulaSettings();
+            this.select = cellSettings.getSelect();
+            this.cellSelectSettings = cellSettings.getCellSelectSettings();
+            this.selectCascadeFlag = cellSettings.getSelectCascadeFlag();
+            this.selectTargetKey = getSelectTargetKey(cellSettings);
+            this.hasStaticValue = cellSettings.getHasStaticValue();
+            this.staticValue = cellSettings.getStaticValue();
+            this.fixedValue = cellSettings.getFixedValue();
+            this.fixedMap = cellSettings.getFixedMap();
+            this.pattern = cellSettings.getPattern();
+            this.cellStyleSettings = cellSettings.getCellStyleSettings();
+            this.skip = cellSettings.isSkip();
+            // 按CellRule与自定义校验编译校验链
+            this.cellRule = cellSettings.getCellRule();
+            this.cellRuleValue = cellSettings.getCellRuleValue();
+            this.cellValidators = cellSettings.getCellValidators();
+            List<CellValidator> chain = new ArrayList<CellValidator>();
+            CellValidator ruleValidator = CellRuleValidators.of(cellRule, cellRuleValue);
+            if (ruleValidator != null) {
+                chain.add(ruleValidator);
+            }
+            if (cellValidators != null) {
+                for (CellValidator cellValidator : cellValidators) {
+                    if (cellValidator != null) {
+                        chain.add(cellValidator);
+                    }
+                }
+            }
+            this.validators = chain.toArray(new CellValidator[chain.size()]);
+        }
+
+        private boolean settingsMatch() {
+            return cellRule == cellSettings.getCellRule()
+                    && cellRuleValue == cellSettings.getCellRuleValue()
+                    && cellValidators == cellSettings.getCellValidators()
+                    && StringUtils.equals(key, cellSettings.getKey())
+                    && settingsCellClass == cellSettings.getCellClass()
+                    && settingsCellDataType == cellSettings.getCellDataType()
+                    && Arrays.equals(formulaGroupNames, cellSettings.getFormulaGroupNames())
+                    && formulaSettings == cellSettings.getFormulaSettings()
+                    && select == cellSettings.getSelect()
+                    && cellSelectSettings == cellSettings.getCellSelectSettings()
+                    && selectCascadeFlag == cellSettings.getSelectCascadeFlag()
+                    && StringUtils.equals(selectTargetKey, getSelectTargetKey(cellSettings))
+                    && hasStaticValue == cellSettings.getHasStaticValue()
+                    && StringUtils.equals(staticValue, cellSettings.getStaticValue())
+                    && fixedValue == cellSettings.getFixedValue()
+                    && fixedMap == cellSettings.getFixedMap()
+                    && pattern == cellSettings.getPattern()
+                    && cellStyleSettings == cellSettings.getCellStyleSettings()
+                    && skip == cellSettings.isSkip();
+        }
+
+        private static String getSelectTargetKey(CellSettings cellSettings) {
+            return cellSettings.getCellSelectSettings() == null ? null : cellSettings.getSelectTargetKey();
+        }
+
+        private static String[] copyOf(String[] values) {
+            return values == null ? null : values.clone();
+        }
+
+        CellSettings getCellSettings() {
+            return cellSettings;
+        }
+
+        int getColumnIndex() {
+            return columnIndex;
+        }
+
+        Class getCellClass() {
+            return cellClass;
+        }
+
+        CellDataType getCellDataType() {
+            return cellDataType;
+        }
+
+        Set<String> getFormulaGroup() {
+            return formulaGroup;
+        }
+
+        String getSelectName() {
+            return selectName;
+        }
+
+        CellConverter getConverter() {
+            return converter;
+        }
+
+        ColumnBinder getBinder() {
+            return binder;
+        }
+
+        ColumnBinder getMapBinder() {
+            return mapBinder;
+        }
+
+        boolean isSelectTarget() {
+            return selectTarget;
+        }
+
+        boolean isDirectNumber() {
+            return directNumber;
+        }
+
+        CellValidator[] getValidators() {
+            return validators;
+        }
+
+        /**
+         * 读取导出数据对象中本列的值
+         *
+         * @param dataBean the data bean
+         * @return the value
+         */
+        Object readValue(Object dataBean) {
+            if (dataBean instanceof Map) {
+                return ((Map) dataBean).get(key);
+            }
+            BeanGetter current = getter;
+            if (current == null || current.getBeanClass() != dataBean.getClass()) {
+                current = BeanUtils.getter(dataBean.getClass(), key);
+                getter = current;
+            }
+            return current.get(dataBean);
+        }
+    }
+}
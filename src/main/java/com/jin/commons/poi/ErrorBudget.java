@@ -0,0 +1,111 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.ImportSettings;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入的出错限制
+ *
+ * @author wujinglei
+ * @ClassName: ErrorBudget
+ * @Description: 按ImportSettings中的出错行数、出错比例与failFast统计一次导入中的出错行，
+ * 超过限制后各sheet停止读取；多sheet并行读取时共用
+ */
+final class ErrorBudget {
+
+    /**
+     * 读取满此行数后才按比例判断
+     */
+    static final int RATIO_MIN_ROWS = 100;
+
+    /**
+     * 允许的最多出错行数，小于0时不限制
+     */
+    private final long maxErrorCount;
+
+    /**
+     * 允许的最大出错比例，小于0时不限制
+     */
+    private final double maxErrorRatio;
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private volatile boolean exhausted = false;
+
+    /**
+     * 出错以外的原因停止读取时的说明
+     */
+    private volatile String stopReason;
+
+    ErrorBudget(ImportSettings importSettings) {
+        if (importSettings.isFailFast()) {
+            this.maxErrorCount = 0;
+        } else {
+            this.maxErrorCount = importSettings.getMaxErrorCount() != null ? importSettings.getMaxErrorCount() : -1;
+        }
+        this.maxErrorRatio = importSettings.getMaxErrorRatio() != null ? importSettings.getMaxErrorRatio() : -1;
+    }
+
+    /**
+     * 记录一行已读取的数据行
+     *
+     * @param error 是否为出错行
+     */
+    void addRow(boolean error) {
+        long rows = rowCount.incrementAndGet();
+        if (!error) {
+            if (maxErrorRatio >= 0 && rows >= RATIO_MIN_ROWS && errorCount.get() > rows * maxErrorRatio) {
+                exhausted = true;
+            }
+            return;
+        }
+        long errors = errorCount.incrementAndGet();
+        if (maxErrorCount >= 0 && errors > maxErrorCount) {
+            exhausted = true;
+        }
+        if (maxErrorRatio >= 0 && rows >= RATIO_MIN_ROWS && errors > rows * maxErrorRatio) {
+            exhausted = true;
+        }
+    }
+
+    /**
+     * 因出错以外的原因停止读取，如读取线程被中断，各sheet随后停止读取
+     *
+     * @param reason the reason
+     */
+    void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+        exhausted = true;
+    }
+
+    /**
+     * 停止读取的说明，因出错超过限制停止时为null
+     *
+     * @return the stop reason
+     */
+    String getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * 是否已超过限制，超过后停止读取
+     *
+     * @return the boolean
+     */
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    long getRowCount() {
+        return rowCount.get();
+    }
+
+    long getErrorCount() {
+        return errorCount.get();
+    }
+}
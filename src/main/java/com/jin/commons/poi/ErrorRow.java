@@ -0,0 +1,240 @@
+package com.jin.commons.poi;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * 导入时的出错行
+ *
+ * @author wujinglei
+ * @ClassName: ErrorRow
+ * @Description: 出错行单元格内容的快照，不持有POI的Row，导入完成后源工作簿即可回收；
+ * 按文件中的顺序保存已有的单元格，导出出错记录时依次写入
+ */
+public final class ErrorRow implements Serializable {
+
+    private static final long serialVersionUID = 4187593027714603152L;
+
+    private final String sheetName;
+
+    private final int rowNum;
+
+    /**
+     * 单元格在源文件中的列序号
+     */
+    private final int[] columnIndexes;
+
+    private final CellType[] cellTypes;
+
+    /**
+     * 文本单元格的内容、公式单元格的公式
+     */
+    private final String[] stringValues;
+
+    /**
+     * 数字单元格的值、布尔单元格的值(1/0)、错误单元格的错误码
+     */
+    private final double[] numberValues;
+
+    private ErrorRow(String sheetName, int rowNum, int cellCount) {
+        this.sheetName = sheetName;
+        this.rowNum = rowNum;
+        this.columnIndexes = new int[cellCount];
+        this.cellTypes = new CellType[cellCount];
+        this.stringValues = new String[cellCount];
+        this.numberValues = new double[cellCount];
+    }
+
+    /**
+     * 由POI的Row生成快照
+     *
+     * @param row           the row
+     * @param columnStrings 按列共用文本，为空时不共用
+     * @return the error row
+     */
+    static ErrorRow of(Row row, ColumnStrings columnStrings) {
+        ErrorRow errorRow = new ErrorRow(row.getSheet().getSheetName(), row.getRowNum(), row.getPhysicalNumberOfCells());
+        Iterator<Cell> it = row.cellIterator();
+        int cellIndex = 0;
+        while (it.hasNext() && cellIndex < errorRow.cellTypes.length) {
+            Cell cell = it.next();
+            int columnIndex = cell.getColumnIndex();
+            CellType cellType = cell.getCellTypeEnum();
+            errorRow.columnIndexes[cellIndex] = columnIndex;
+            errorRow.cellTypes[cellIndex] = cellType;
+            switch (cellType) {
+                case NUMERIC:
+                    errorRow.numberValues[cellIndex] = cell.getNumericCellValue();
+                    break;
+                case STRING:
+                    errorRow.stringValues[cellIndex] = ColumnStrings.intern(columnStrings, columnIndex, cell.getStringCellValue());
+                    break;
+                case FORMULA:
+                    errorRow.stringValues[cellIndex] = ColumnStrings.intern(columnStrings, columnIndex, cell.getCellFormula());
+                    break;
+                case BOOLEAN:
+                    errorRow.numberValues[cellIndex] = cell.getBooleanCellValue() ? 1 : 0;
+                    break;
+                case ERROR:
+                    errorRow.numberValues[cellIndex] = cell.getErrorCellValue();
+                    break;
+                default:
+                    break;
+            }
+            cellIndex++;
+        }
+        return errorRow;
+    }
+
+    /**
+     * 由工作簿中行的快照生成
+     *
+     * @param row           the row
+     * @param columnStrings 按列共用文本，为空时不共用
+     * @return the error row
+     */
+    static ErrorRow of(ValueSheetRow row, ColumnStrings columnStrings) {
+        int cellCount = 0;
+        for (int columnIndex = 0; columnIndex < row.getCellCount(); columnIndex++) {
+            if (row.hasCell(columnIndex)) {
+                cellCount++;
+            }
+        }
+        ErrorRow errorRow = new ErrorRow(row.getSheetName(), row.getRowNum(), cellCount);
+        int cellIndex = 0;
+        for (int columnIndex = 0; columnIndex < row.getCellCount(); columnIndex++) {
+            if (!row.hasCell(columnIndex)) {
+                continue;
+            }
+            CellType cellType = row.getCellType(columnIndex);
+            errorRow.columnIndexes[cellIndex] = columnIndex;
+            errorRow.cellTypes[cellIndex] = cellType;
+            switch (cellType) {
+                case NUMERIC:
+                case BOOLEAN:
+                case ERROR:
+                    errorRow.numberValues[cellIndex] = row.getCellValue(columnIndex);
+                    break;
+                case STRING:
+                case FORMULA:
+                    errorRow.stringValues[cellIndex] = ColumnStrings.intern(columnStrings, columnIndex, row.getCellText(columnIndex));
+                    break;
+                default:
+                    break;
+            }
+            cellIndex++;
+        }
+        return errorRow;
+    }
+
+    /**
+     * 所在sheet名称
+     *
+     * @return the sheet name
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * 行号(从0开始)
+     *
+     * @return the row num
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * 单元格数量
+     *
+     * @return the cell count
+     */
+    public int getCellCount() {
+        return cellTypes.length;
+    }
+
+    /**
+     * 单元格在源文件中的列序号
+     *
+     * @param cellIndex 单元格在快照中的序号
+     * @return the column index
+     */
+    public int getColumnIndex(int cellIndex) {
+        return columnIndexes[cellIndex];
+    }
+
+    /**
+     * Gets cell type.
+     *
+     * @param cellIndex 单元格在快照中的序号
+     * @return the cell type
+     */
+    public CellType getCellType(int cellIndex) {
+        return cellTypes[cellIndex];
+    }
+
+    /**
+     * 文本单元格的内容，公式单元格的公式
+     *
+     * @param cellIndex 单元格在快照中的序号
+     * @return the string value
+     */
+    public String getStringValue(int cellIndex) {
+        return stringValues[cellIndex];
+    }
+
+    /**
+     * 数字单元格的值，错误单元格的错误码
+     *
+     * @param cellIndex 单元格在快照中的序号
+     * @return the numeric value
+     */
+    public double getNumericValue(int cellIndex) {
+        return numberValues[cellIndex];
+    }
+
+    /**
+     * 布尔单元格的值
+     *
+     * @param cellIndex 单元格在快照中的序号
+     * @return the boolean value
+     */
+    public boolean getBooleanValue(int cellIndex) {
+        return numberValues[cellIndex] != 0;
+    }
+
+    /**
+     * 写入导出出错记录的行，与源单元格的类型一致；公式以文本写入
+     *
+     * @param row the row
+     */
+    void writeTo(Row row) {
+        for (int cellIndex = 0; cellIndex < cellTypes.length; cellIndex++) {
+            Cell targetCell = row.createCell(cellIndex);
+            targetCell.setCellType(CellType.STRING);
+            if (cellTypes[cellIndex] == null) {
+                continue;
+            }
+            switch (cellTypes[cellIndex]) {
+                case NUMERIC:
+                case ERROR:
+                    targetCell.setCellValue(numberValues[cellIndex]);
+                    break;
+                case STRING:
+                case FORMULA:
+                    targetCell.setCellValue(stringValues[cellIndex]);
+                    break;
+                case BOOLEAN:
+                    targetCell.setCellValue(numberValues[cellIndex] != 0);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
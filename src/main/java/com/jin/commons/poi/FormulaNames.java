@@ -0,0 +1,50 @@
+package com.jin.commons.poi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 下拉名称
+ *
+ * @author wujinglei
+ * @ClassName: FormulaNames
+ * @Description: 下拉列表在工作簿中的名称由下拉的key计算摘要得出；MessageDigest不是线程安全的，每个线程使用自己的实例
+ */
+final class FormulaNames {
+
+    private final static Logger log = LoggerFactory.getLogger(FormulaNames.class);
+
+    private static final ThreadLocal<MessageDigest> MESSAGE_DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("md5");
+            } catch (NoSuchAlgorithmException e) {
+                log.error(e.getMessage(), e);
+                return null;
+            }
+        }
+    };
+
+    private FormulaNames() {
+    }
+
+    /**
+     * 计算下拉名称
+     *
+     * @param formulaStr the formula str
+     * @return the string
+     */
+    static String digest(String formulaStr) {
+        MessageDigest messageDigest = MESSAGE_DIGEST.get();
+        if (messageDigest == null) {
+            return formulaStr;
+        }
+        messageDigest.update(formulaStr.getBytes());
+        return "formulaStr_" + new BigInteger(1, messageDigest.digest()).toString(16);
+    }
+}
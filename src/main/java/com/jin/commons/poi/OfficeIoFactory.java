@@ -2,30 +2,41 @@ package com.jin.commons.poi;
 
 import com.jin.commons.poi.exception.SheetIndexException;
 import com.jin.commons.poi.exception.XSSFCellTypeException;
+import com.jin.commons.poi.CompiledSheetPlan.ColumnPlan;
 import com.jin.commons.poi.model.*;
 import com.jin.commons.poi.utils.BeanUtils;
 import com.jin.commons.poi.utils.CellDataConverter;
-import com.jin.commons.poi.utils.FieldUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellRangeAddressList;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.ss.util.RegionUtil;
 import org.apache.poi.xssf.usermodel.XSSFDataValidationConstraint;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The type Office io factory.
@@ -39,7 +50,16 @@ public final class OfficeIoFactory {
 
     private final static Logger log = LoggerFactory.getLogger(OfficeIoFactory.class);
 
-    private MessageDigest messageDigest;
+    /**
+     * 标题、表头与子表头最多占用的行数
+     */
+    private final static int MAX_HEADER_ROWS = 3;
+
+    /**
+     * 流水线写入时每个任务取值的行数
+     */
+    private final static int EXPORT_ROW_CHUNK_SIZE = 256;
+
     /**
      * 导出异常数据记录
      *
@@ -53,17 +73,18 @@ public final class OfficeIoFactory {
     protected final OfficeIoResult exportXlsxErrorRecord(SheetSettings[] sheets, Map<Integer, List> errRecordRows) {
         //实例化返回对象
         OfficeIoResult result = new OfficeIoResult(sheets);
+        CellStylePool stylePool = new CellStylePool(result.getResultWorkbook());
         //循环构建sheet
         Set<Integer> keySet = errRecordRows.keySet();
         for (Integer index : keySet) {
             try{
 
-                SheetSettings thisSheetSettings = checkCellSettings(result.getResultWorkbook(), sheets[index], index);
+                CompiledSheetPlan plan = CompiledSheetPlan.of(sheets[index]);
 
                 //创建sheet
-                Sheet sheet = result.getResultWorkbook().createSheet(sheets[index].getSheetName());
+                Sheet sheet = result.getResultWorkbook().createSheet(plan.getSheetName());
 
-                boolean hasSubTitle = buildHeader(result.getResultWorkbook(), sheet, thisSheetSettings);
+                boolean hasSubTitle = buildHeader(stylePool, sheet, plan);
 
                 int startRow = hasSubTitle?1:0;
                 //写入出错行记录
@@ -71,7 +92,9 @@ public final class OfficeIoFactory {
                 int errorRowCount = rowList.size();
                 for (int errorIndex = 0; errorIndex < errorRowCount; errorIndex++) {
                     Row row = sheet.createRow(errorIndex + 1 + startRow);
-                    if (rowList.get(errorIndex) instanceof Row) {
+                    if (rowList.get(errorIndex) instanceof ErrorRow) {
+                        ((ErrorRow) rowList.get(errorIndex)).writeTo(row);
+                    } else if (rowList.get(errorIndex) instanceof Row) {
                         Iterator<Cell> it = ((Row) rowList.get(errorIndex)).cellIterator();
                         int cellIndex = 0;
                         while (it.hasNext()) {
@@ -122,30 +145,31 @@ public final class OfficeIoFactory {
     protected final OfficeIoResult exportXlsxTemplate(SheetSettings[] sheetSettingsArray) {
         // 实例化返回对象
         OfficeIoResult result = new OfficeIoResult(sheetSettingsArray);
+        CellStylePool stylePool = new CellStylePool(result.getResultWorkbook());
         // 循环构建sheet
         for (int sheetIndex = 0; sheetIndex < sheetSettingsArray.length; sheetIndex++) {
-            SheetSettings thisSheetSettings;
+            CompiledSheetPlan plan;
             try {
-                thisSheetSettings = checkCellSettings(result.getResultWorkbook(), sheetSettingsArray[sheetIndex], sheetIndex);
+                plan = CompiledSheetPlan.of(sheetSettingsArray[sheetIndex]);
             } catch (SheetIndexException e) {
                 result.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
                 log.error(e.getMessage(),e);
                 continue;
             }
             // 创建sheet
-            Sheet sheet = result.getResultWorkbook().createSheet(thisSheetSettings.getSheetName());
+            Sheet sheet = result.getResultWorkbook().createSheet(plan.getSheetName());
 
-            if (!StringUtils.isBlank(thisSheetSettings.getTitle())){
-                buildTitle(sheet,thisSheetSettings);
+            if (plan.hasTitle()){
+                buildTitle(sheet,plan);
             }
 
             // 构建标题
-            boolean hasSubTitle = buildHeader(result.getResultWorkbook(), sheet, thisSheetSettings);
+            boolean hasSubTitle = buildHeader(stylePool, sheet, plan);
 
-            createHideSelectSheet(result.getResultWorkbook(), thisSheetSettings, sheetIndex);
+            createHideSelectSheet(result.getResultWorkbook(), plan, sheetIndex);
 
             // 导入DEMO数据
-            buildDemoDataList(result.getResultWorkbook(), hasSubTitle, result, thisSheetSettings, sheet);
+            buildDemoDataList(stylePool, hasSubTitle, plan, sheet, sheetIndex);
         }
         return result;
     }
@@ -153,30 +177,30 @@ public final class OfficeIoFactory {
     /**
      * 构建标题
      * @param sheet
-     * @param sheetSettings
+     * @param plan
      */
-    private void buildTitle(Sheet sheet,SheetSettings sheetSettings){
+    private void buildTitle(Sheet sheet,CompiledSheetPlan plan){
         Row titleRow = sheet.createRow(0);
         Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue(sheetSettings.getTitle());
+        titleCell.setCellValue(plan.getTitle());
         CellStyle style = sheet.getWorkbook().createCellStyle();
         Font font = sheet.getWorkbook().createFont();
 
-        style.setFillForegroundColor(sheetSettings.getTitleStyle().getTitleForegroundColor());
+        style.setFillForegroundColor(plan.getTitleStyle().getTitleForegroundColor());
         style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setBorderRight(sheetSettings.getTitleStyle().getTitleBorder()[0]);
-        style.setBorderTop(sheetSettings.getTitleStyle().getTitleBorder()[1]);
-        style.setBorderLeft(sheetSettings.getTitleStyle().getTitleBorder()[2]);
-        style.setBorderBottom(sheetSettings.getTitleStyle().getTitleBorder()[3]);
+        style.setBorderRight(plan.getTitleStyle().getTitleBorder()[0]);
+        style.setBorderTop(plan.getTitleStyle().getTitleBorder()[1]);
+        style.setBorderLeft(plan.getTitleStyle().getTitleBorder()[2]);
+        style.setBorderBottom(plan.getTitleStyle().getTitleBorder()[3]);
         style.setAlignment(HorizontalAlignment.CENTER);
         style.setVerticalAlignment(VerticalAlignment.CENTER);
-        font.setFontName(sheetSettings.getTitleStyle().getTitleFont());
-        font.setColor(sheetSettings.getTitleStyle().getTitleFontColor());
-        font.setFontHeightInPoints(sheetSettings.getTitleStyle().getTitleSize());
+        font.setFontName(plan.getTitleStyle().getTitleFont());
+        font.setColor(plan.getTitleStyle().getTitleFontColor());
+        font.setFontHeightInPoints(plan.getTitleStyle().getTitleSize());
         style.setFont(font);
 
         titleCell.setCellStyle(style);
-        CellRangeAddress region = new CellRangeAddress(0, 0, 0, sheetSettings.getCellCount() - 1);
+        CellRangeAddress region = new CellRangeAddress(0, 0, 0, plan.getCellCount() - 1);
         sheet.addMergedRegion(region);
         RegionUtil.setBorderBottom(BorderStyle.THIN, region, sheet);
         RegionUtil.setBorderTop(BorderStyle.THIN, region, sheet);
@@ -188,19 +212,19 @@ public final class OfficeIoFactory {
      * 构建表头
      *
      * @param sheet
-     * @param sheetSettings
+     * @param plan
      * @return
      */
-    private boolean buildHeader(Workbook workbook, Sheet sheet, SheetSettings sheetSettings) {
+    private boolean buildHeader(CellStylePool stylePool, Sheet sheet, CompiledSheetPlan plan) {
         int startRow = 0;
-        if (!StringUtils.isBlank(sheetSettings.getTitle())){
+        if (plan.hasTitle()){
             startRow = 1;
         }
         // 设置列头
-        boolean hasSubTitle = buildTopHeader(workbook, sheet, sheetSettings, sheet.createRow(startRow));
+        boolean hasSubTitle = buildTopHeader(stylePool, sheet, plan, sheet.createRow(startRow));
         // 处理子列头
         if (hasSubTitle) {
-            buildSubHeader(workbook, sheet, sheetSettings, sheet.createRow(startRow + 1));
+            buildSubHeader(stylePool, sheet, plan, sheet.createRow(startRow + 1));
         }
         return hasSubTitle;
     }
@@ -209,16 +233,16 @@ public final class OfficeIoFactory {
      * 构建顶部表头
      *
      * @param sheet
-     * @param sheetSettings
+     * @param plan
      * @param headerRow
      * @return
      */
-    private boolean buildTopHeader(Workbook workbook, Sheet sheet, SheetSettings sheetSettings, Row headerRow) {
+    private boolean buildTopHeader(CellStylePool stylePool, Sheet sheet, CompiledSheetPlan plan, Row headerRow) {
         boolean hasSubTitle = false;
-        for (int titleIndex = 0, xlsCellIndex = 0; titleIndex < sheetSettings.getCellSettings().length; titleIndex++) {
-            CellSettings thisCellsSettings = sheetSettings.getCellSettings()[titleIndex];
+        for (int titleIndex = 0, xlsCellIndex = 0; titleIndex < plan.getCellSettings().length; titleIndex++) {
+            CellSettings thisCellsSettings = plan.getCellSettings()[titleIndex];
             // 构建CELL
-            Cell cell = createHeaderCell(workbook, headerRow, xlsCellIndex, thisCellsSettings);
+            Cell cell = createHeaderCell(stylePool, headerRow, xlsCellIndex, thisCellsSettings);
 
             cell.setCellValue(thisCellsSettings.getColName());
 
@@ -237,16 +261,16 @@ public final class OfficeIoFactory {
      * 构建子表头
      *
      * @param sheet
-     * @param sheetSettings
+     * @param plan
      * @param subRow
      */
-    private void buildSubHeader(Workbook workbook, Sheet sheet, SheetSettings sheetSettings, Row subRow) {
-        for (int titleIndex = 0, xlsCellIndex = 0; titleIndex < sheetSettings.getCellSettings().length; titleIndex++) {
-            CellSettings parentCellSettings = sheetSettings.getCellSettings()[titleIndex];
+    private void buildSubHeader(CellStylePool stylePool, Sheet sheet, CompiledSheetPlan plan, Row subRow) {
+        for (int titleIndex = 0, xlsCellIndex = 0; titleIndex < plan.getCellSettings().length; titleIndex++) {
+            CellSettings parentCellSettings = plan.getCellSettings()[titleIndex];
             if (parentCellSettings.getSubCells() != null) {
                 for (int subTitleIndex = 0; subTitleIndex < parentCellSettings.getSubCells().length; subTitleIndex++) {
                     CellSettings thisCellsSettings = parentCellSettings.getSubCells()[subTitleIndex];
-                    Cell subTitleCell = createHeaderCell(workbook, subRow, xlsCellIndex, thisCellsSettings);
+                    Cell subTitleCell = createHeaderCell(stylePool, subRow, xlsCellIndex, thisCellsSettings);
                     subTitleCell.setCellValue(thisCellsSettings.getColName());
                     xlsCellIndex++;
                 }
@@ -265,18 +289,17 @@ public final class OfficeIoFactory {
 
     /**
      * 创建DEMO数据
-     * @param workbook
+     * @param stylePool
      * @param hasSubTitle
-     * @param result
-     * @param thisSheetSettings
+     * @param plan
      * @param sheet
+     * @param sheetIndex
      */
-    private void buildDemoDataList(Workbook workbook, boolean hasSubTitle, OfficeIoResult result, SheetSettings thisSheetSettings, Sheet sheet) {
+    private void buildDemoDataList(CellStylePool stylePool, boolean hasSubTitle, CompiledSheetPlan plan, Sheet sheet, int sheetIndex) {
 
-        CellSettings[] cells = thisSheetSettings.getCellSettings();
         //循环新增每一条数据
         int startRowIndex = 1;
-        if (!StringUtils.isBlank(thisSheetSettings.getTitle())){
+        if (plan.hasTitle()){
             startRowIndex += 1;
         }
         if (hasSubTitle) {
@@ -286,108 +309,250 @@ public final class OfficeIoFactory {
         for (int demoIndex = 0; demoIndex < 1; demoIndex++) {
             Row row = sheet.createRow(demoIndex + startRowIndex);
             //循环列配置为第一列赋值
-            for (int cellIndex = 0, xlsCellIndex = 0; cellIndex < cells.length; cellIndex++) {
-                CellSettings thisCellSettings = cells[cellIndex];
-                if (thisCellSettings.getSubCells() == null) {
-                    //构建一个CELL
-                    Cell cell = createDataCell(workbook, row, xlsCellIndex, thisCellSettings);
-                    try {
-                        setCellDataValue(sheet, cell,thisSheetSettings, thisCellSettings, null);
-                    } catch (Exception e) {
-                        log.warn(e.getMessage());
-                        continue;
-                    }
-                    xlsCellIndex++;
-                } else {
-                    for (int subIndex = 0; subIndex < cells[cellIndex].getSubCells().length; subIndex++) {
-                        CellSettings thisSubCellSettings = cells[cellIndex].getSubCells()[subIndex];
-                        // 构建一个CELL
-                        Cell cell = createDataCell(workbook, row, xlsCellIndex, thisSubCellSettings);
-                        try {
-                            setCellDataValue(sheet, cell,thisSheetSettings, thisSubCellSettings, null);
-                        } catch (Exception e) {
-                            log.warn(e.getMessage());
-                            continue;
-                        }
-                        xlsCellIndex++;
-                    }
+            for (ColumnPlan column : plan.getColumns()) {
+                //构建一个CELL
+                Cell cell = createDataCell(row, column, getCellStyle(stylePool, column.getCellSettings(), false));
+                try {
+                    setCellDataValue(cell, plan, column, false, null);
+                } catch (Exception e) {
+                    log.warn(e.getMessage());
                 }
             }
         }
+        buildSelectDataValidations(sheet, plan, sheetIndex, startRowIndex, startRowIndex);
     }
 
     /**
      * 构建数据内容
      *
+     * @param columnStyles 各列的样式，为空时在此创建
      * @param hasSubTitle
-     * @param thisSheetSettings
+     * @param plan
+     * @param dataIterator
+     * @param rowPool      数据行取值的线程池，为空时在写入线程中取值
      * @param result
      * @param sheet
      * @param sheetIndex
      * @return
      */
-    private long buildDataList(Workbook workbook, boolean hasSubTitle, SheetSettings thisSheetSettings, OfficeIoResult result, Sheet sheet, Integer sheetIndex) {
-
-        //取出当前sheet所要导出的数据
-        List dataList = thisSheetSettings.getExportData();
-        CellSettings[] cells = thisSheetSettings.getCellSettings();
+    private long buildDataList(CellStylePool stylePool, CellStyle[] columnStyles, boolean hasSubTitle, CompiledSheetPlan plan, Iterator dataIterator, ForkJoinPool rowPool,
+                               OfficeIoResult result, Sheet sheet, Integer sheetIndex) {
 
         //循环新增每一条数据
         long successCount = 0;
         int startRowIndex = 1;
-        if (!StringUtils.isBlank(thisSheetSettings.getTitle())){
+        if (plan.hasTitle()){
             startRowIndex += 1;
         }
         if (hasSubTitle) {
             startRowIndex += 1;
         }
 
-        if (dataList != null && dataList.size() > 0) {
-            rowLoop:
-            for (int dataIndex = 0; dataIndex < dataList.size(); dataIndex++) {
-                //取出当前行的数据对象
-                Object bean = dataList.get(dataIndex);
-                //新增行
-                Row row = sheet.createRow(dataIndex + startRowIndex);
-                //循环列配置为第一列赋值
-                for (int cellIndex = 0, xlsCellIndex = 0; cellIndex < cells.length; cellIndex++) {
-                    CellSettings thisCellSettings = cells[cellIndex];
-
-                    if (cells[cellIndex].getSubCells() == null) {
-                        //构建一个CELL
-                        Cell cell = createDataCell(workbook, row, xlsCellIndex, thisCellSettings);
-                        //写入内容
-                        try {
-                            setCellDataValue(sheet, cell,thisSheetSettings, thisCellSettings, bean);
-                        } catch (Exception e) {
-                            recordSetCellDataValueException(result, row, thisSheetSettings, cell.getAddress().formatAsString(), thisCellSettings, e);
-                            continue rowLoop;
+        if (dataIterator != null && dataIterator.hasNext()) {
+            ColumnPlan[] columns = plan.getColumns();
+            if (columnStyles == null) {
+                columnStyles = getColumnStyles(stylePool, plan);
+            }
+            int rowIndex = startRowIndex;
+            if (rowPool == null) {
+                while (dataIterator.hasNext()) {
+                    //取出当前行的数据对象，写入后不再保留
+                    RenderedRow renderedRow = renderDataRow(columns, dataIterator.next());
+                    if (writeDataRow(sheet.createRow(rowIndex++), plan, columnStyles, renderedRow, result, sheetIndex)) {
+                        //记录成功结果
+                        successCount++;
+                    }
+                }
+            } else {
+                // 已提交、按行顺序等待写入的取值任务
+                LinkedList<ForkJoinTask<DataChunk>> pendingChunks = new LinkedList<ForkJoinTask<DataChunk>>();
+                try {
+                    List chunkBeans = new ArrayList(EXPORT_ROW_CHUNK_SIZE);
+                    while (dataIterator.hasNext()) {
+                        chunkBeans.add(dataIterator.next());
+                        if (chunkBeans.size() >= EXPORT_ROW_CHUNK_SIZE || !dataIterator.hasNext()) {
+                            pendingChunks.add(rowPool.submit(new DataChunk(columns, chunkBeans)));
+                            chunkBeans = new ArrayList(EXPORT_ROW_CHUNK_SIZE);
                         }
-                        xlsCellIndex++;
-                    } else {
-                        for (int subIndex = 0; subIndex < cells[cellIndex].getSubCells().length; subIndex++) {
-                            CellSettings thisSubCellSettings = cells[cellIndex].getSubCells()[subIndex];
-                            //构建一个CELL
-                            Cell cell = createDataCell(workbook, row, xlsCellIndex, thisSubCellSettings);
-                            //写入内容
-                            try {
-                                setCellDataValue(sheet, cell, thisSheetSettings,thisSubCellSettings, bean);
-                            } catch (Exception e) {
-                                recordSetCellDataValueException(result, row, thisSheetSettings, cell.getAddress().formatAsString(), thisCellSettings, e);
-                                continue rowLoop;
+                        //未写入的任务过多时先写入最早的任务，内存中的行数有上限；取完后写入剩余的任务
+                        while (!pendingChunks.isEmpty() && (pendingChunks.size() > rowPool.getParallelism() * 2 || !dataIterator.hasNext())) {
+                            for (RenderedRow renderedRow : pendingChunks.removeFirst().join().rows) {
+                                if (writeDataRow(sheet.createRow(rowIndex++), plan, columnStyles, renderedRow, result, sheetIndex)) {
+                                    successCount++;
+                                }
                             }
-                            xlsCellIndex++;
                         }
                     }
+                } finally {
+                    for (ForkJoinTask<DataChunk> chunk : pendingChunks) {
+                        chunk.cancel(true);
+                    }
                 }
-                //记录成功结果
-                successCount++;
             }
+            buildSelectDataValidations(sheet, plan, sheetIndex, startRowIndex, rowIndex - 1);
         }
 
         return successCount;
     }
 
+    /**
+     * 各列的样式在整个sheet中相同，日期列带日期格式
+     *
+     * @param stylePool
+     * @param plan
+     * @return
+     */
+    private CellStyle[] getColumnStyles(CellStylePool stylePool, CompiledSheetPlan plan) {
+        ColumnPlan[] columns = plan.getColumns();
+        CellStyle[] columnStyles = new CellStyle[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            CellSettings cellSettings = columns[i].getCellSettings();
+            columnStyles[i] = isExcelDateColumn(columns[i])
+                    ? getCellStyle(stylePool, cellSettings, false, CellDataConverter.datePattern2ExcelFormat(cellSettings.getPattern().getValue()))
+                    : getCellStyle(stylePool, cellSettings, false);
+        }
+        return columnStyles;
+    }
+
+    /**
+     * 取得一行数据的各列的值，不涉及工作簿，可在写入线程之外执行；
+     * 某列取值出错时不再取之后各列的值
+     *
+     * @param columns
+     * @param bean
+     * @return
+     */
+    private RenderedRow renderDataRow(ColumnPlan[] columns, Object bean) {
+        RenderedRow renderedRow = new RenderedRow(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                renderedRow.values[i] = getCellDataValue(columns[i], bean);
+            } catch (Exception e) {
+                renderedRow.failedColumn = i;
+                renderedRow.failure = e;
+                break;
+            }
+        }
+        return renderedRow;
+    }
+
+    /**
+     * 按列的顺序创建单元格并写入取得的值，出错的行记录错误后不再写入之后的列
+     *
+     * @param row
+     * @param plan
+     * @param columnStyles
+     * @param renderedRow
+     * @param result
+     * @param sheetIndex
+     * @return 是否写入成功
+     */
+    private boolean writeDataRow(Row row, CompiledSheetPlan plan, CellStyle[] columnStyles, RenderedRow renderedRow, OfficeIoResult result, int sheetIndex) {
+        ColumnPlan[] columns = plan.getColumns();
+        for (int i = 0; i < columns.length; i++) {
+            ColumnPlan column = columns[i];
+            //构建一个CELL
+            Cell cell = createDataCell(row, column, columnStyles[i]);
+            //写入内容
+            Exception failure = renderedRow.failedColumn == i ? renderedRow.failure : null;
+            if (failure == null) {
+                try {
+                    setCellDataValue(cell, plan, column, true, renderedRow.values[i]);
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                recordSetCellDataValueException(result, row, plan, sheetIndex, cell.getAddress().formatAsString(), column.getCellSettings(), failure);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一行数据取得的各列的值
+     */
+    private static final class RenderedRow {
+
+        private final Object[] values;
+
+        /**
+         * 取值出错的列，没有出错时为-1
+         */
+        private int failedColumn = -1;
+
+        private Exception failure;
+
+        RenderedRow(int columnCount) {
+            this.values = new Object[columnCount];
+        }
+    }
+
+    /**
+     * 在线程池中取值的一组数据行，取值后不再持有数据对象
+     */
+    private final class DataChunk implements Callable<DataChunk> {
+
+        private final ColumnPlan[] columns;
+
+        private List beans;
+
+        private final RenderedRow[] rows;
+
+        DataChunk(ColumnPlan[] columns, List beans) {
+            this.columns = columns;
+            this.beans = beans;
+            this.rows = new RenderedRow[beans.size()];
+        }
+
+        @Override
+        public DataChunk call() {
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = renderDataRow(columns, beans.get(i));
+            }
+            beans = null;
+            return this;
+        }
+    }
+
+    /**
+     * 设置下拉列的校验，每列在数据行范围内只添加一个校验；
+     * 联动下拉的公式以首行相对引用联动的列，Excel按所在行调整
+     *
+     * @param sheet
+     * @param plan
+     * @param sheetIndex
+     * @param firstRowIndex
+     * @param lastRowIndex
+     */
+    private void buildSelectDataValidations(Sheet sheet, CompiledSheetPlan plan, int sheetIndex, int firstRowIndex, int lastRowIndex) {
+        for (ColumnPlan column : plan.getColumns()) {
+            CellSettings cellSettings = column.getCellSettings();
+            if (!cellSettings.getSelect()) {
+                continue;
+            }
+            StringBuilder formulaString = new StringBuilder();
+            if (cellSettings.getSelectCascadeFlag()){
+                String addressFlag = plan.getCellAddress(cellSettings.getSelectTargetKey());
+                // =INDIRECT(VLOOKUP(A1,Sheet2!A:B,2,0))
+                formulaString.append("INDIRECT(VLOOKUP(");
+                formulaString.append("CONCATENATE(\"");
+                formulaString.append(cellSettings.getKey());
+                formulaString.append("_\",");
+                formulaString.append(addressFlag);
+                formulaString.append(firstRowIndex + 1);
+                formulaString.append("),select_");
+                formulaString.append(sheetIndex);
+                formulaString.append("_text");
+                formulaString.append("!A:B,2,0))");
+            }else {
+                formulaString.append(column.getSelectName());
+            }
+            setSelectDataValidation(sheet, formulaString.toString(), firstRowIndex, lastRowIndex, column.getColumnIndex());
+        }
+    }
+
     /**
      * 导出XLSX
      *
@@ -398,40 +563,249 @@ public final class OfficeIoFactory {
      * @date: 2014年6月11日 上午10:01:54
      */
     protected final OfficeIoResult exportXlsx(SheetSettings[] sheetSettingsArray) {
+        return exportXlsx(sheetSettingsArray, new ExportSettings());
+    }
+
+    /**
+     * 导出XLSX
+     *
+     * @param sheetSettingsArray the sheet settings array
+     * @param exportSettings     the export settings
+     * @return office io result
+     */
+    protected final OfficeIoResult exportXlsx(SheetSettings[] sheetSettingsArray, ExportSettings exportSettings) {
         //实例化返回对象
         OfficeIoResult result = new OfficeIoResult(sheetSettingsArray);
-        //循环构建sheet
-        for (int sheetIndex = 0; sheetIndex < sheetSettingsArray.length; sheetIndex++) {
-            SheetSettings thisSheetSettings;
-            try {
-                thisSheetSettings = checkCellSettings(result.getResultWorkbook(), sheetSettingsArray[sheetIndex], sheetIndex);
-            } catch (SheetIndexException e) {
-                result.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
-                log.error(e.getMessage(),e);
-                continue;
-            }
-            //创建sheet
-            Sheet sheet = result.getResultWorkbook().createSheet(thisSheetSettings.getSheetName());
+        if (exportSettings.isStreaming()) {
+            // 标题与表头的合并单元格需要同时保留在内存中
+            result.useStreamingWorkbook(Math.max(exportSettings.getRowAccessWindow(), MAX_HEADER_ROWS), exportSettings.isCompressTempFiles());
+        }
+        Workbook workbook = result.getWorkbook();
+        CellStylePool stylePool = new CellStylePool(workbook);
+        // 非流式写入时各sheet共用文本表，不能并行写入
+        ExecutorService sheetExecutor = exportSettings.isStreaming() && sheetSettingsArray.length > 1 ? exportSettings.getSheetExecutor() : null;
+        // 并行写入时各sheet的数据任务，编译失败的sheet为null
+        List<SheetDataTask> tasks = new ArrayList<SheetDataTask>(sheetSettingsArray.length);
+        List<Future<OfficeIoResult>> futures = new ArrayList<Future<OfficeIoResult>>(sheetSettingsArray.length);
+        try {
+            //循环构建sheet，标题与表头按顺序创建
+            for (int sheetIndex = 0; sheetIndex < sheetSettingsArray.length; sheetIndex++) {
+                OfficeIoResult sheetResult = sheetExecutor == null ? result : new OfficeIoResult(sheetSettingsArray.length);
+                CompiledSheetPlan plan;
+                try {
+                    plan = CompiledSheetPlan.of(sheetSettingsArray[sheetIndex]);
+                } catch (SheetIndexException e) {
+                    sheetResult.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
+                    log.error(e.getMessage(),e);
+                    if (sheetExecutor != null) {
+                        tasks.add(null);
+                        futures.add(CompletableFuture.completedFuture(sheetResult));
+                    }
+                    continue;
+                }
+                //创建sheet
+                Sheet sheet = workbook.createSheet(plan.getSheetName());
 
-            if (!StringUtils.isBlank(thisSheetSettings.getTitle())){
-                buildTitle(sheet,thisSheetSettings);
-            }
+                if (plan.hasTitle()){
+                    buildTitle(sheet,plan);
+                }
 
-            boolean hasSubTitle = buildHeader(result.getResultWorkbook(), sheet, thisSheetSettings);
+                boolean hasSubTitle = buildHeader(stylePool, sheet, plan);
 
-            result.getResultTotal()[sheetIndex] = buildDataList(result.getResultWorkbook(), hasSubTitle, thisSheetSettings, result, sheet, sheetIndex);
+                if (sheetExecutor == null) {
+                    result.getResultTotal()[sheetIndex] = buildSheetData(stylePool, null, hasSubTitle, plan, sheetSettingsArray[sheetIndex], exportSettings, result, sheet, sheetIndex);
 
-            if (result.getErrors().size() > 0){
-                result.setCompleted(false);
+                    if (result.getErrors().size() > 0){
+                        result.setCompleted(false);
+                    }
+                } else {
+                    // 样式表不是线程安全的，数据列的样式也在提交前创建，写入线程只读取
+                    tasks.add(new SheetDataTask(stylePool, getColumnStyles(stylePool, plan), hasSubTitle, plan, sheetSettingsArray[sheetIndex], exportSettings, sheetResult, sheet, sheetIndex));
+                    futures.add(null);
+                }
+            }
+            if (sheetExecutor != null) {
+                //所有sheet的标题、表头与样式创建完成后再提交
+                for (int sheetIndex = 0; sheetIndex < tasks.size(); sheetIndex++) {
+                    if (tasks.get(sheetIndex) != null) {
+                        futures.set(sheetIndex, sheetExecutor.submit(tasks.get(sheetIndex)));
+                    }
+                }
+                mergeExportSheets(sheetSettingsArray, result, futures);
             }
+        } finally {
+            //未完成的sheet取消，已开始写入的等待结束后再返回工作簿
+            for (int sheetIndex = 0; sheetIndex < tasks.size(); sheetIndex++) {
+                if (tasks.get(sheetIndex) != null) {
+                    tasks.get(sheetIndex).cancelAndAwait(futures.get(sheetIndex));
+                }
+            }
+            closeExportStreams(sheetSettingsArray);
         }
-        cleanCacheData(sheetSettingsArray);
-
         result.setSheetSettings(sheetSettingsArray);
 
         return result;
     }
 
+    /**
+     * 写入一个sheet的数据行
+     *
+     * @param stylePool
+     * @param columnStyles 各列的样式，为空时在写入数据时创建
+     * @param hasSubTitle
+     * @param plan
+     * @param sheetSettings
+     * @param exportSettings
+     * @param result
+     * @param sheet
+     * @param sheetIndex
+     * @return 写入成功的条数
+     */
+    private long buildSheetData(CellStylePool stylePool, CellStyle[] columnStyles, boolean hasSubTitle, CompiledSheetPlan plan, SheetSettings sheetSettings, ExportSettings exportSettings,
+                                OfficeIoResult result, Sheet sheet, int sheetIndex) {
+        if (sheetSettings.getExportPageSource() == null) {
+            return buildDataList(stylePool, columnStyles, hasSubTitle, plan, sheetSettings.getExportIterator(), exportSettings.getRowPool(), result, sheet, sheetIndex);
+        }
+        PagedExportIterator pagedIterator = new PagedExportIterator(sheetSettings.getExportPageSource(), sheetSettings.getExportPageSize(),
+                exportSettings.getPrefetchPages(), exportSettings.getPrefetchExecutor());
+        try {
+            return buildDataList(stylePool, columnStyles, hasSubTitle, plan, pagedIterator, exportSettings.getRowPool(), result, sheet, sheetIndex);
+        } finally {
+            pagedIterator.close();
+        }
+    }
+
+    /**
+     * 在线程池中写入一个sheet的数据行，结果记录在单独的OfficeIoResult中
+     */
+    private final class SheetDataTask implements Callable<OfficeIoResult> {
+
+        private final CellStylePool stylePool;
+
+        /**
+         * 提交前创建的各列样式
+         */
+        private final CellStyle[] columnStyles;
+
+        private final boolean hasSubTitle;
+
+        private final CompiledSheetPlan plan;
+
+        private final SheetSettings sheetSettings;
+
+        private final ExportSettings exportSettings;
+
+        private final OfficeIoResult sheetResult;
+
+        private final Sheet sheet;
+
+        private final int sheetIndex;
+
+        /**
+         * 任务是否已开始，取消时用于区分未开始与正在写入的任务
+         */
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        SheetDataTask(CellStylePool stylePool, CellStyle[] columnStyles, boolean hasSubTitle, CompiledSheetPlan plan, SheetSettings sheetSettings, ExportSettings exportSettings,
+                      OfficeIoResult sheetResult, Sheet sheet, int sheetIndex) {
+            this.stylePool = stylePool;
+            this.columnStyles = columnStyles;
+            this.hasSubTitle = hasSubTitle;
+            this.plan = plan;
+            this.sheetSettings = sheetSettings;
+            this.exportSettings = exportSettings;
+            this.sheetResult = sheetResult;
+            this.sheet = sheet;
+            this.sheetIndex = sheetIndex;
+        }
+
+        @Override
+        public OfficeIoResult call() {
+            if (!started.compareAndSet(false, true)) {
+                return sheetResult;
+            }
+            try {
+                sheetResult.getResultTotal()[sheetIndex] = buildSheetData(stylePool, columnStyles, hasSubTitle, plan, sheetSettings, exportSettings, sheetResult, sheet, sheetIndex);
+                if (sheetResult.getErrors().size() > 0){
+                    sheetResult.setCompleted(false);
+                }
+                return sheetResult;
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * 取消任务，未开始的不再执行，已开始的等待写入结束，之后工作簿不再被修改；
+         * 等待时被中断则继续等待，结束后恢复中断状态
+         *
+         * @param future 提交后的Future，未提交时为null
+         */
+        void cancelAndAwait(Future<OfficeIoResult> future) {
+            if (future != null) {
+                future.cancel(true);
+            }
+            if (started.compareAndSet(false, true)) {
+                finished.countDown();
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 按sheet顺序合并并行写入的结果
+     *
+     * @param sheetSettingsArray
+     * @param result
+     * @param futures
+     */
+    private void mergeExportSheets(SheetSettings[] sheetSettingsArray, OfficeIoResult result, List<Future<OfficeIoResult>> futures) {
+        for (int sheetIndex = 0; sheetIndex < futures.size(); sheetIndex++) {
+            try {
+                result.mergeSheetResult(sheetIndex, futures.get(sheetIndex).get());
+            } catch (ExecutionException e) {
+                log.error(e.getMessage(), e);
+                result.addErrorRecord(new ErrorRecord(sheetSettingsArray[sheetIndex].getSheetName(), "sheet导出异常：" + e.getCause().getMessage(), "跳过本SHEET所有处理", true));
+                result.setCompleted(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.addErrorRecord(new ErrorRecord("等待sheet导出时被中断", "跳过剩余处理", true));
+                result.setCompleted(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 关闭以Stream为数据源的sheet的Stream
+     *
+     * @param sheetSettingsArray
+     */
+    private void closeExportStreams(SheetSettings[] sheetSettingsArray) {
+        for (SheetSettings sheetSettings : sheetSettingsArray) {
+            if (sheetSettings.getExportStream() != null) {
+                try {
+                    sheetSettings.getExportStream().close();
+                } catch (Exception e) {
+                    log.warn(e.getMessage());
+                }
+            }
+        }
+    }
+
     /**
      * 导入XLSX
      *
@@ -443,10 +817,44 @@ public final class OfficeIoFactory {
      * @Description: 导入XLSX
      */
     protected final OfficeIoResult importXlsx(File file, SheetSettings[] sheets) {
-        // 按文件取出工作簿
+        return importXlsx(file, sheets, new ImportSettings());
+    }
+
+    /**
+     * 导入XLSX
+     *
+     * @param file           the file
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @return office io result
+     */
+    protected final OfficeIoResult importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings) {
+        return importXlsx(file, sheets, importSettings, (RowHandler) null);
+    }
+
+    /**
+     * 导入XLSX
+     *
+     * @param file           the file
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @param rowHandler     行处理，为空时结果放入importList
+     * @return office io result
+     */
+    protected final OfficeIoResult importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings, RowHandler rowHandler) {
+        if (importSettings.isStreaming()) {
+            OPCPackage opcPackage = null;
+            try {
+                opcPackage = OPCPackage.open(file, PackageAccess.READ);
+            } catch (InvalidFormatException e) {
+                log.error(e.getMessage());
+            }
+            return loadPackage(opcPackage, sheets, importSettings, rowHandler);
+        }
+        // 按文件只读打开工作簿，按需从文件中读取各部分
         Workbook workbook = null;
         try {
-            workbook = create(new FileInputStream(file));
+            workbook = create(file);
         } catch (InvalidFormatException e) {
             log.error(e.getMessage());
         } catch (FileNotFoundException e) {
@@ -454,7 +862,32 @@ public final class OfficeIoFactory {
         } catch (IOException e) {
             log.error(e.getMessage());
         }
-        return loadWorkbook(workbook, sheets);
+        try {
+            return loadWorkbook(workbook, sheets, importSettings, rowHandler);
+        } finally {
+            close(workbook);
+        }
+    }
+
+    /**
+     * 批量导入XLSX
+     *
+     * @param file           the file
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @param batchSink      批量写入
+     * @return office io result
+     */
+    protected final OfficeIoResult importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings, BatchSink batchSink) {
+        BatchRowHandler batchRowHandler = new BatchRowHandler(batchSink, sheets, importSettings.getBatchSize(), importSettings.getMaxInFlightBatches());
+        OfficeIoResult result;
+        try {
+            result = importXlsx(file, sheets, importSettings, batchRowHandler);
+        } finally {
+            batchRowHandler.close();
+        }
+        batchRowHandler.writeResult(result);
+        return result;
     }
 
     /**
@@ -468,6 +901,49 @@ public final class OfficeIoFactory {
      * @Description: 导入XLS
      */
     protected final OfficeIoResult importXlsx(InputStream inputStream, SheetSettings[] sheets) {
+        return importXlsx(inputStream, sheets, new ImportSettings());
+    }
+
+    /**
+     * Import xlsx office io result.
+     *
+     * @param inputStream    the input stream
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @return office io result
+     */
+    protected final OfficeIoResult importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings) {
+        return importXlsx(inputStream, sheets, importSettings, (RowHandler) null);
+    }
+
+    /**
+     * Import xlsx office io result.
+     *
+     * @param inputStream    the input stream
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @param rowHandler     行处理，为空时结果放入importList
+     * @return office io result
+     * @Description: 流式读取时先将输入流写入临时文件，按文件只读打开，读取完成后删除
+     */
+    protected final OfficeIoResult importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings, RowHandler rowHandler) {
+        if (importSettings.isStreaming()) {
+            // OPCPackage按流打开时会把整个压缩包读入内存，先写入临时文件，再按文件只读打开
+            File tempFile = null;
+            try {
+                tempFile = File.createTempFile("poi-utils-import", ".xlsx");
+                Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.error(e.getMessage());
+                deleteTempFile(tempFile);
+                return loadPackage(null, sheets, importSettings, rowHandler);
+            }
+            try {
+                return importXlsx(tempFile, sheets, importSettings, rowHandler);
+            } finally {
+                deleteTempFile(tempFile);
+            }
+        }
         // 按文件取出工作簿
         Workbook workbook = null;
         try {
@@ -479,7 +955,32 @@ public final class OfficeIoFactory {
         } catch (IOException e) {
             log.error(e.getMessage());
         }
-        return loadWorkbook(workbook, sheets);
+        try {
+            return loadWorkbook(workbook, sheets, importSettings, rowHandler);
+        } finally {
+            close(workbook);
+        }
+    }
+
+    /**
+     * 批量导入XLSX
+     *
+     * @param inputStream    the input stream
+     * @param sheets         the sheets
+     * @param importSettings the import settings
+     * @param batchSink      批量写入
+     * @return office io result
+     */
+    protected final OfficeIoResult importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings, BatchSink batchSink) {
+        BatchRowHandler batchRowHandler = new BatchRowHandler(batchSink, sheets, importSettings.getBatchSize(), importSettings.getMaxInFlightBatches());
+        OfficeIoResult result;
+        try {
+            result = importXlsx(inputStream, sheets, importSettings, batchRowHandler);
+        } finally {
+            batchRowHandler.close();
+        }
+        batchRowHandler.writeResult(result);
+        return result;
     }
 
     /**
@@ -495,66 +996,57 @@ public final class OfficeIoFactory {
         return WorkbookFactory.create(in);
     }
 
+    /**
+     * create Workbook
+     * @param file
+     * @return
+     * @throws IOException
+     * @Description: 只读打开文件中的工作本，不将整个文件读入内存
+     */
+    private Workbook create(File file) throws IOException, InvalidFormatException {
+        return WorkbookFactory.create(file, null, true);
+    }
+
+    /**
+     * close Workbook
+     * @param workbook
+     * @Description: 关闭只读打开的工作本，不回写文件
+     */
+    private void close(Workbook workbook) {
+        if (workbook == null) {
+            return;
+        }
+        try {
+            if (workbook instanceof XSSFWorkbook) {
+                ((XSSFWorkbook) workbook).getPackage().revert();
+            } else {
+                workbook.close();
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
     /**
      * check cell Rules
+     * @param column
+     * @param activeRow
      * @param obj
      * @param result
      * @param sheetIndex
-     * @param activeRow
-     * @return
+     * @return 不通过时返回false，跳过行处理
      * @author: wujinglei
      * @date: 2014年7月8日 下午4:46:02
-     * @Description: 判断规则
-     */
-    private Boolean checkRule(CellSettings cellSettings, Cell cell, Object obj, OfficeIoResult result, int sheetIndex, Row activeRow) {
-        if (cellSettings.getCellRule() != null) {
-            switch (cellSettings.getCellRule()) {
-                case REQUIRED:
-                    if (obj == null || StringUtils.isBlank(String.valueOf(obj))) {
-                        result.addErrorRecord(new ErrorRecord(cell.getSheet().getSheetName(), cell.getAddress().formatAsString(), cellSettings, "当前列不能为空", "跳过行处理", false));
-                        result.addErrorRecordRow(sheetIndex, activeRow);
-                        return false;
-                    }
-                    break;
-                case EQUALSTO:
-                    if (!cellSettings.getCellRuleValue().equals(obj)) {
-                        result.addErrorRecord(new ErrorRecord(cell.getSheet().getSheetName(), cell.getAddress().formatAsString(), cellSettings, "当前列预设值"
-                                + cellSettings.getCellRuleValue() + "与读取出的值" + obj + "不相等", "跳过行处理", false));
-                        result.addErrorRecordRow(sheetIndex, activeRow);
-                        return false;
-                    }
-                case LONG:
-                    if (StringUtils.isNotBlank(String.valueOf(obj))) {
-                        try {
-                            Long.parseLong(String.valueOf(obj));
-                        } catch (NumberFormatException ex) {
-                            result.addErrorRecord(new ErrorRecord(cell.getSheet().getSheetName(), cell.getAddress().formatAsString(), cellSettings, "当前列预设值不是长整型", "跳过行处理", false));
-                            result.addErrorRecordRow(sheetIndex, activeRow);
-                            return false;
-                        }
-                    }
-                case INTEGER:
-                    if (StringUtils.isNotBlank(String.valueOf(obj))) {
-                        try {
-                            Integer.parseInt(String.valueOf(obj));
-                        } catch (NumberFormatException ex) {
-                            result.addErrorRecord(new ErrorRecord(cell.getSheet().getSheetName(), cell.getAddress().formatAsString(), cellSettings, "当前列预设值不是整型", "跳过行处理", false));
-                            result.addErrorRecordRow(sheetIndex, activeRow);
-                            return false;
-                        }
-                    }
-                case DOUBLE:
-                    if (StringUtils.isNotBlank(String.valueOf(obj))) {
-                        try {
-                            Double.parseDouble(String.valueOf(obj));
-                        } catch (NumberFormatException ex) {
-                            result.addErrorRecord(new ErrorRecord(cell.getSheet().getSheetName(), cell.getAddress().formatAsString(), cellSettings, "当前列预设值不是浮点型", "跳过行处理", false));
-                            result.addErrorRecordRow(sheetIndex, activeRow);
-                            return false;
-                        }
-                    }
-                default:
-                    break;
+     * @Description: 按列编译好的校验链(CellRule与自定义校验)判断转换后的值
+     */
+    private boolean checkRule(ColumnPlan column, SheetRow activeRow, Object obj, OfficeIoResult result, int sheetIndex) {
+        CellValidator[] validators = column.getValidators();
+        for (int i = 0; i < validators.length; i++) {
+            String errorMsg = validators[i].validate(obj);
+            if (errorMsg != null) {
+                result.addErrorRecord(new ErrorRecord(activeRow.getSheetName(), activeRow.getAddress(column.getColumnIndex()), column.getCellSettings(), errorMsg, "跳过行处理", false));
+                activeRow.addErrorRecordRow(result, sheetIndex);
+                return false;
             }
         }
         return true;
@@ -564,12 +1056,14 @@ public final class OfficeIoFactory {
      * load Workwook data
      * @param workbook
      * @param sheets
+     * @param importSettings
+     * @param rowHandler
      * @return
      * @author: wujinglei
      * @date: 2014年6月11日 上午11:17:50
      * @Description: 按sheetSettings读取workbook中的数据
      */
-    private OfficeIoResult loadWorkbook(Workbook workbook, SheetSettings[] sheets) {
+    private OfficeIoResult loadWorkbook(final Workbook workbook, final SheetSettings[] sheets, final ImportSettings importSettings, final RowHandler rowHandler) {
 
         OfficeIoResult result = new OfficeIoResult(sheets);
 
@@ -579,445 +1073,807 @@ public final class OfficeIoFactory {
             return result;
         }
 
-        long successCount = 0;
-
         // 记录处理的数字
         result.setResultTotal(new Long[sheets.length]);
         result.setFileTotalRow(new Long[sheets.length]);
 
+        // 公式计算在本次导入中共用，并行读取sheet时按sheet创建
+        final boolean cachedFormulaResult = importSettings.isCachedFormulaResult();
+        final boolean parallelSheets = importSettings.getSheetExecutor() != null && sheets.length > 1;
+        final WorkbookFormulaEvaluator sharedEvaluator = cachedFormulaResult || parallelSheets ? null : new WorkbookFormulaEvaluator(workbook);
+        final ErrorBudget errorBudget = new ErrorBudget(importSettings);
+
+        loadSheets(sheets, importSettings, result, errorBudget, new SheetReader() {
+            @Override
+            public void readSheet(int sheetIndex, OfficeIoResult sheetResult) {
+                CompiledSheetPlan plan;
+                try {
+                    plan = compileSheetPlan(workbook.getNumberOfSheets(), sheets[sheetIndex], sheetIndex);
+                } catch (SheetIndexException e) {
+                    sheetResult.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
+                    log.error(e.getMessage(),e);
+                    return;
+                }
+
+                // check selectSheet
+                SelectIndex selectIndex = new SelectIndex(plan);
+                getSelectSheetMap(workbook, sheetIndex, selectIndex);
+                selectIndex.build();
+
+                // 取提对应的sheet
+                Sheet sheet = workbook.getSheetAt(plan.getSheetSeq(sheetIndex));
+                SheetLoader sheetLoader = new SheetLoader(plan, selectIndex, sheetIndex, sheetResult, rowHandler, importSettings.getRowPool(), errorBudget);
+                ColumnStrings columnStrings = new ColumnStrings();
+                WorkbookFormulaEvaluator formulaEvaluator = sharedEvaluator;
+                if (!cachedFormulaResult && parallelSheets) {
+                    formulaEvaluator = new WorkbookFormulaEvaluator(workbook);
+                }
+                // 循环每一行，出错超过限制时停止
+                for (Row activeRow : sheet) {
+                    if (!sheetLoader.onRow(new PoiSheetRow(activeRow, formulaEvaluator, columnStrings))) {
+                        break;
+                    }
+                }
+                sheetLoader.finish();
+            }
+        });
+
+        result.setSheetSettings(sheets);
+        recordErrorBudget(result, errorBudget);
+
+        return result;
+    }
+
+    /**
+     * 删除导入时写入的临时文件，删除失败时在退出时删除
+     * @param tempFile
+     */
+    private void deleteTempFile(File tempFile) {
+        if (tempFile != null && !tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * load package data
+     * @param opcPackage
+     * @param sheets
+     * @param importSettings
+     * @param rowHandler
+     * @return
+     * @Description: 流式读取，按sheetSettings逐行读取文件中的数据，不构建工作簿
+     */
+    private OfficeIoResult loadPackage(OPCPackage opcPackage, final SheetSettings[] sheets, final ImportSettings importSettings, final RowHandler rowHandler) {
+
+        OfficeIoResult result = new OfficeIoResult(sheets);
+
+        //文件异常时处理
+        if (opcPackage == null) {
+            result.addErrorRecord(new ErrorRecord("文件无法读取或读取异常", "跳过所有处理", true));
+            return result;
+        }
+
+        try {
+            final XlsxStreamReader reader;
+            try {
+                reader = new XlsxStreamReader(opcPackage);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                result.addErrorRecord(new ErrorRecord("文件无法读取或读取异常", "跳过所有处理", true));
+                return result;
+            }
+
+            // 记录处理的数字
+            result.setResultTotal(new Long[sheets.length]);
+            result.setFileTotalRow(new Long[sheets.length]);
+            final ErrorBudget errorBudget = new ErrorBudget(importSettings);
+
+            loadSheets(sheets, importSettings, result, errorBudget, new SheetReader() {
+                @Override
+                public void readSheet(int sheetIndex, OfficeIoResult sheetResult) {
+                    CompiledSheetPlan plan;
+                    try {
+                        plan = compileSheetPlan(reader.getNumberOfSheets(), sheets[sheetIndex], sheetIndex);
+                    } catch (SheetIndexException e) {
+                        sheetResult.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
+                        log.error(e.getMessage(),e);
+                        return;
+                    }
+
+                    SelectIndex selectIndex = new SelectIndex(plan);
+                    SheetLoader sheetLoader = new SheetLoader(plan, selectIndex, sheetIndex, sheetResult, rowHandler, importSettings.getRowPool(), errorBudget);
+                    try {
+                        // check selectSheet
+                        getSelectSheetMap(reader, sheetIndex, selectIndex);
+                        selectIndex.build();
+                        // 逐行读取对应的sheet
+                        reader.readSheet(plan.getSheetSeq(sheetIndex), sheetLoader);
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                        sheetResult.addErrorRecord(new ErrorRecord(plan.getSheetName(), "sheet无法读取或读取异常", "跳过本SHEET剩余处理", true));
+                    }
+                    sheetLoader.finish();
+                }
+            });
+
+            result.setSheetSettings(sheets);
+            recordErrorBudget(result, errorBudget);
+        } finally {
+            // 只读打开，不保存
+            opcPackage.revert();
+        }
+
+        return result;
+    }
+
+    /**
+     * record error budget
+     * @param result
+     * @param errorBudget
+     * @Description: 记录已读取的出错行数，出错超过限制或被中断时标记结果为截断
+     */
+    private void recordErrorBudget(OfficeIoResult result, ErrorBudget errorBudget) {
+        result.setErrorRowCount(errorBudget.getErrorCount());
+        if (errorBudget.isExhausted()) {
+            String message = errorBudget.getStopReason() != null ? errorBudget.getStopReason()
+                    : "出错行数超过限制，已读取" + errorBudget.getRowCount() + "行，其中出错" + errorBudget.getErrorCount() + "行";
+            result.addErrorRecord(new ErrorRecord(message, "跳过剩余处理", true));
+            result.setTruncated(true);
+            result.setCompleted(false);
+        }
+    }
+
+    /**
+     * 读取一个sheet
+     */
+    private interface SheetReader {
+
+        /**
+         * 读取sheet，结果记录到sheetResult中
+         *
+         * @param sheetIndex  the sheet index
+         * @param sheetResult the sheet result
+         */
+        void readSheet(int sheetIndex, OfficeIoResult sheetResult);
+    }
+
+    /**
+     * load sheets
+     * @param sheets
+     * @param importSettings
+     * @param result
+     * @param errorBudget
+     * @param sheetReader
+     * @Description: 设置了线程池时各sheet并行读取，每个sheet先记录到独立的结果中，再按sheet顺序合并；
+     * 出错超过限制后不再读取未开始的sheet
+     */
+    private void loadSheets(SheetSettings[] sheets, ImportSettings importSettings, OfficeIoResult result, final ErrorBudget errorBudget, final SheetReader sheetReader) {
+        ExecutorService sheetExecutor = importSettings.getSheetExecutor();
+        if (sheetExecutor == null || sheets.length < 2) {
+            for (int sheetIndex = 0; sheetIndex < sheets.length && !errorBudget.isExhausted(); sheetIndex++) {
+                sheetReader.readSheet(sheetIndex, result);
+            }
+            return;
+        }
+
+        List<Future<OfficeIoResult>> futures = new ArrayList<Future<OfficeIoResult>>(sheets.length);
+        for (int sheetIndex = 0; sheetIndex < sheets.length; sheetIndex++) {
+            final int thisSheetIndex = sheetIndex;
+            final OfficeIoResult sheetResult = new OfficeIoResult(sheets.length);
+            futures.add(sheetExecutor.submit(new Callable<OfficeIoResult>() {
+                @Override
+                public OfficeIoResult call() {
+                    if (!errorBudget.isExhausted()) {
+                        sheetReader.readSheet(thisSheetIndex, sheetResult);
+                    }
+                    return sheetResult;
+                }
+            }));
+        }
+
         for (int sheetIndex = 0; sheetIndex < sheets.length; sheetIndex++) {
-            SheetSettings thisSheetSettings;
             try {
-                thisSheetSettings = checkCellSettings(workbook, sheets[sheetIndex], sheetIndex);
-            } catch (SheetIndexException e) {
-                result.addErrorRecord(new ErrorRecord(e.getMessage(), "跳过本SHEET所有处理", true));
-                log.error(e.getMessage(),e);
-                continue;
+                result.mergeSheetResult(sheetIndex, futures.get(sheetIndex).get());
+            } catch (ExecutionException e) {
+                log.error(e.getMessage(), e);
+                result.addErrorRecord(new ErrorRecord(sheets[sheetIndex].getSheetName(), "sheet读取异常：" + e.getCause().getMessage(), "跳过本SHEET所有处理", true));
+                result.setCompleted(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<OfficeIoResult> future : futures) {
+                    future.cancel(true);
+                }
+                result.addErrorRecord(new ErrorRecord("等待sheet读取时被中断", "跳过剩余处理", true));
+                result.setCompleted(false);
+                return;
             }
+        }
+    }
+
+    /**
+     * 按行读取sheet数据
+     */
+    private final class SheetLoader implements XlsxSheetHandler.RowListener {
 
-            CellSettings[] cells = thisSheetSettings.getCellSettings();
+        /**
+         * 流水线处理时每个任务转换的行数
+         */
+        private static final int ROW_CHUNK_SIZE = 256;
 
-            // check selectSheet
-            getSelectSheetMap(workbook,thisSheetSettings,sheetIndex);
+        private final CompiledSheetPlan plan;
 
-            // 取提对应的sheet
-            Sheet sheet = workbook.getSheetAt(thisSheetSettings.getSheetSeq());
-            List sheetList = new ArrayList();
-            // 获取表中的总行数
-            int rowsNum = sheet.getLastRowNum();
-            //记录读取的总数
-            result.setTotalRowCount(sheetIndex, (long) (rowsNum - thisSheetSettings.getSkipRows() + 1));
+        /**
+         * 本次导入文件中的下拉数据
+         */
+        private final SelectIndex selectIndex;
 
-            // 循环每一行
-            rowLoop:
-            for (int row = 0; row <= rowsNum; row++) {
-                //判断是否是在skipRow之内
-                if (row < thisSheetSettings.getSkipRows()) {
-                    continue;
+        private final int sheetIndex;
+
+        private final OfficeIoResult result;
+
+        /**
+         * 行处理，为空时结果放入sheetList
+         */
+        private final RowHandler rowHandler;
+
+        /**
+         * 行数据转换的线程池，为空时在读取线程中转换
+         */
+        private final ForkJoinPool rowPool;
+
+        /**
+         * 本次导入的出错限制
+         */
+        private final ErrorBudget errorBudget;
+
+        /**
+         * 公式列，交给线程池前在读取线程中计算公式结果
+         */
+        private final boolean[] formulaColumns;
+
+        /**
+         * 已提交、按行顺序等待合并的转换任务
+         */
+        private final LinkedList<ForkJoinTask<RowChunk>> pendingChunks = new LinkedList<ForkJoinTask<RowChunk>>();
+
+        private final List sheetList = new ArrayList();
+
+        private List<SheetRow> chunkRows;
+
+        private long successCount = 0;
+
+        private int nextRowNum = 0;
+
+        private int lastRowNum = 0;
+
+        SheetLoader(CompiledSheetPlan plan, SelectIndex selectIndex, int sheetIndex, OfficeIoResult result, RowHandler rowHandler, ForkJoinPool rowPool,
+                    ErrorBudget errorBudget) {
+            this.plan = plan;
+            this.selectIndex = selectIndex;
+            this.sheetIndex = sheetIndex;
+            this.result = result;
+            this.rowHandler = rowHandler;
+            this.rowPool = rowPool;
+            this.errorBudget = errorBudget;
+            this.formulaColumns = new boolean[plan.getCellCount()];
+            for (ColumnPlan column : plan.getColumns()) {
+                formulaColumns[column.getColumnIndex()] = column.getCellDataType() == CellDataType.FORMULA && !column.getCellSettings().isSkip();
+            }
+        }
+
+        @Override
+        public boolean onRow(SheetRow activeRow) {
+            //出错超过限制时停止读取
+            if (errorBudget.isExhausted()) {
+                return false;
+            }
+            int rowNum = activeRow.getRowNum();
+            // 文件中不存在的行记为空行
+            for (; nextRowNum < rowNum; nextRowNum++) {
+                if (nextRowNum >= plan.getSkipRows()) {
+                    result.addWrongRecord(new WrongRecord(sheetIndex, nextRowNum, "导入的文件中空行数据", "跳过行处理", false));
                 }
-                // 取的当前行
-                Row activeRow = sheet.getRow(row);
-                // 判断当前行记录是否有有效
-                if (activeRow != null) {
-                    // 第一行的各列放在一个MAP中
-                    Object resultObj;
-                    try {
-                        if (thisSheetSettings.getDataClazzType() != null){
-                            resultObj = thisSheetSettings.getDataClazzType().newInstance();
-                        }else {
-                            resultObj = new HashMap();
-                        }
-                    } catch (InstantiationException e) {
-                        log.error(e.getMessage());
-                        resultObj = new HashMap();
-                    } catch (IllegalAccessException e) {
-                        log.error(e.getMessage());
-                        resultObj = new HashMap();
+            }
+            nextRowNum = rowNum + 1;
+            lastRowNum = rowNum;
+
+            //判断是否是在skipRow之内
+            if (rowNum < plan.getSkipRows()) {
+                return true;
+            }
+            if (rowPool == null) {
+                acceptRow(activeRow, loadRow(activeRow, plan, selectIndex, sheetIndex, result));
+                return !errorBudget.isExhausted();
+            }
+            //交给线程池转换，读取线程继续取下一行；工作簿不是线程安全的，只提交快照
+            if (chunkRows == null) {
+                chunkRows = new ArrayList<SheetRow>(ROW_CHUNK_SIZE);
+            }
+            chunkRows.add(activeRow.snapshot(formulaColumns));
+            if (chunkRows.size() >= ROW_CHUNK_SIZE) {
+                submitChunk();
+            }
+            return !errorBudget.isExhausted();
+        }
+
+        /**
+         * 提交当前的行，未合并的任务过多时先合并最早的任务
+         */
+        private void submitChunk() {
+            if (chunkRows == null) {
+                return;
+            }
+            pendingChunks.add(rowPool.submit(new RowChunk(chunkRows, plan, selectIndex, sheetIndex)));
+            chunkRows = null;
+            while (pendingChunks.size() > rowPool.getParallelism() * 2) {
+                mergeChunk(pendingChunks.removeFirst().join());
+            }
+        }
+
+        /**
+         * 按行顺序合并转换结果
+         *
+         * @param rowChunk the row chunk
+         */
+        private void mergeChunk(RowChunk rowChunk) {
+            List<ErrorRecord> chunkErrors = rowChunk.chunkResult.getErrors();
+            List chunkErrorRows = (List) rowChunk.chunkResult.getErrRecordRows().get(sheetIndex);
+            int errorIndex = 0;
+            int errorRowIndex = 0;
+            for (int i = 0; i < rowChunk.rows.size() && !errorBudget.isExhausted(); i++) {
+                for (; errorIndex < rowChunk.errorEnds[i]; errorIndex++) {
+                    result.addErrorRecord(chunkErrors.get(errorIndex));
+                }
+                if (errorRowIndex < rowChunk.errorRowEnds[i]) {
+                    result.addErrorRecordRows(sheetIndex, chunkErrorRows.subList(errorRowIndex, rowChunk.errorRowEnds[i]));
+                    errorRowIndex = rowChunk.errorRowEnds[i];
+                }
+                acceptRow(rowChunk.rows.get(i), rowChunk.rowObjects[i]);
+            }
+        }
+
+        /**
+         * 记录转换后的行数据
+         *
+         * @param activeRow the active row
+         * @param resultObj 行数据对象，出错时为null
+         */
+        private void acceptRow(SheetRow activeRow, Object resultObj) {
+            if (resultObj == null) {
+                errorBudget.addRow(true);
+                return;
+            }
+            if (rowHandler != null) {
+                //交给调用方处理
+                try {
+                    rowHandler.handle(sheetIndex, activeRow.getRowNum(), resultObj);
+                } catch (RuntimeException e) {
+                    log.error(e.getMessage(), e);
+                    if (Thread.currentThread().isInterrupted()) {
+                        // 读取线程被中断，之后的行都会失败，停止整个导入，只记录一次
+                        errorBudget.stop("导入被中断：" + e.getMessage());
+                        return;
                     }
-                    // 循环每一列按列所给的参数进行处理
-                    int excelCellIndex = 0;
-                    Map<String,String> selectTargetValueMap = new HashMap();
-                    for (int cellIndex = 0; cellIndex < cells.length; cellIndex++) {
-                        Cell cell = activeRow.getCell(excelCellIndex);
-                        if (cell != null) {
-                            Object obj;
-                            // 处理合并单元合问题
-                            if (cells[cellIndex].getSubCells() != null) {
-                                CellSettings[] subCells = cells[cellIndex].getSubCells();
-                                for (int subCellIndex = 0; subCellIndex < subCells.length; subCellIndex++) {
-                                    if (!subCells[subCellIndex].isSkip()){
-                                        cell = activeRow.getCell(excelCellIndex);
-                                        try {
-                                            obj = getCellValue(cell, thisSheetSettings, subCells[subCellIndex], workbook,selectTargetValueMap);
-                                        } catch (XSSFCellTypeException e) {
-                                            recordSetCellDataValueException(result,activeRow,thisSheetSettings, cell.getAddress().formatAsString(),subCells[subCellIndex],e);
-                                            continue rowLoop;
-                                        }
-                                        //判断规则
-                                        if (!checkRule(subCells[subCellIndex], cell, obj, result, sheetIndex, activeRow)) {
-                                            continue rowLoop;
-                                        }
-                                        setValueToObject(resultObj, subCells[subCellIndex], obj);
-                                    }
-                                    excelCellIndex++;
-                                }
-                            } else {
-                                if (!cells[cellIndex].isSkip()){
-                                    try {
-                                        obj = getCellValue(cell, thisSheetSettings, cells[cellIndex], workbook,selectTargetValueMap);
-                                    } catch (XSSFCellTypeException e) {
-                                        recordSetCellDataValueException(result,activeRow,thisSheetSettings, cell.getAddress().formatAsString(),cells[cellIndex],e);
-                                        continue rowLoop;
-                                    }
-                                    //判断规则
-                                    if (!checkRule(cells[cellIndex], cell, obj, result, sheetIndex, activeRow)) {
-                                        continue rowLoop;
-                                    }
-                                    setValueToObject(resultObj, cells[cellIndex], obj);
-                                }
-                                excelCellIndex++;
-                            }
-                        }
+                    result.addErrorRecord(new ErrorRecord(activeRow.getSheetName(), String.valueOf(activeRow.getRowNum() + 1), "行数据处理异常：" + e.getMessage(), "跳过行处理", false));
+                    activeRow.addErrorRecordRow(result, sheetIndex);
+                    errorBudget.addRow(true);
+                    return;
+                }
+            } else {
+                //将前当行所对应的对象放入List中
+                sheetList.add(resultObj);
+            }
+            //记录成功结果
+            successCount++;
+            errorBudget.addRow(false);
+        }
+
+        /**
+         * 记录sheet的处理结果
+         */
+        void finish() {
+            if (rowPool != null) {
+                if (!errorBudget.isExhausted()) {
+                    submitChunk();
+                }
+                while (!pendingChunks.isEmpty()) {
+                    ForkJoinTask<RowChunk> chunk = pendingChunks.removeFirst();
+                    if (errorBudget.isExhausted()) {
+                        // 超过限制后不再合并，已提交的转换任务直接丢弃
+                        chunk.cancel(true);
+                    } else {
+                        mergeChunk(chunk.join());
                     }
-                    //将前当行所对应的MAP放入List中
-                    sheetList.add(resultObj);
-                } else {
-                    result.addWrongRecord(new WrongRecord(sheetIndex, row, "导入的文件中空行数据", "跳过行处理", false));
-                    continue;
                 }
-                //记录成功结果
-                successCount++;
+                chunkRows = null;
             }
+            //记录读取的总数
+            result.setTotalRowCount(sheetIndex, (long) (lastRowNum - plan.getSkipRows() + 1));
             //将成功条数放入result中
             result.getResultTotal()[sheetIndex] = successCount;
             //将处理后的sheet的数据放入返回对象中
             result.addSheetList(sheetList);
+            //批量导入时提交本sheet剩余的数据
+            if (rowHandler instanceof BatchRowHandler) {
+                ((BatchRowHandler) rowHandler).finishSheet(sheetIndex);
+            }
+
+            if (result.getErrors().size() > 0){
+                result.setCompleted(false);
+            }
+        }
+    }
+
+    /**
+     * 在线程池中转换的一组行，错误先记录在chunkResult中，并记下每行的位置以便按行合并
+     */
+    private final class RowChunk implements Callable<RowChunk> {
+
+        private final List<SheetRow> rows;
+
+        private final CompiledSheetPlan plan;
+
+        private final SelectIndex selectIndex;
+
+        private final int sheetIndex;
+
+        private final OfficeIoResult chunkResult = new OfficeIoResult(0);
+
+        private final Object[] rowObjects;
+
+        private final int[] errorEnds;
+
+        private final int[] errorRowEnds;
+
+        RowChunk(List<SheetRow> rows, CompiledSheetPlan plan, SelectIndex selectIndex, int sheetIndex) {
+            this.rows = rows;
+            this.plan = plan;
+            this.selectIndex = selectIndex;
+            this.sheetIndex = sheetIndex;
+            this.rowObjects = new Object[rows.size()];
+            this.errorEnds = new int[rows.size()];
+            this.errorRowEnds = new int[rows.size()];
+        }
+
+        @Override
+        public RowChunk call() {
+            for (int i = 0; i < rows.size(); i++) {
+                rowObjects[i] = loadRow(rows.get(i), plan, selectIndex, sheetIndex, chunkResult);
+                errorEnds[i] = chunkResult.getErrors().size();
+                List errorRows = (List) chunkResult.getErrRecordRows().get(sheetIndex);
+                errorRowEnds[i] = errorRows == null ? 0 : errorRows.size();
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 导入文件中下拉文字到值的索引
+     * @Description: 读取下拉sheet时按名称存放各下拉的文字与值，再按列计算一次名称，读取单元格时直接按文字取值；
+     * 联动下拉按被联动列的可选文字预先建立，其他文字在首次出现时建立
+     */
+    private final class SelectIndex {
+
+        private final CompiledSheetPlan plan;
+
+        /**
+         * 名称 -> (文字 -> 值)，读取数据行之前放入，之后只读
+         */
+        private final Map<String, Map<String, String>> selectValuesByName = new HashMap<String, Map<String, String>>();
+
+        /**
+         * 列 -> (文字 -> 值)
+         */
+        private final Map<String, Map<String, String>> columnSelectValues = new HashMap<String, Map<String, String>>();
+
+        /**
+         * 联动列 -> (被联动列的文字 -> (文字 -> 值))，流水线处理时会被多个线程读写
+         */
+        private final Map<String, ConcurrentMap<String, Map<String, String>>> cascadeSelectValues = new HashMap<String, ConcurrentMap<String, Map<String, String>>>();
+
+        SelectIndex(CompiledSheetPlan plan) {
+            this.plan = plan;
+        }
+
+        void putSelectValues(String nameName, Map<String, String> selectValues) {
+            selectValuesByName.put(nameName, selectValues);
+        }
+
+        /**
+         * 下拉数据读取完成后，按列建立索引
+         */
+        void build() {
+            for (ColumnPlan column : plan.getColumns()) {
+                CellSettings cellSettings = column.getCellSettings();
+                if (cellSettings.getSelect() && !cellSettings.getSelectCascadeFlag()) {
+                    Map<String, String> selectValues = selectValuesByName.get(column.getSelectName());
+                    columnSelectValues.put(cellSettings.getKey(), selectValues == null ? Collections.<String, String>emptyMap() : selectValues);
+                }
+            }
+            for (ColumnPlan column : plan.getColumns()) {
+                CellSettings cellSettings = column.getCellSettings();
+                if (cellSettings.getSelect() && cellSettings.getSelectCascadeFlag()) {
+                    ConcurrentMap<String, Map<String, String>> targetSelectValues = new ConcurrentHashMap<String, Map<String, String>>();
+                    Map<String, String> targetValues = columnSelectValues.get(cellSettings.getSelectTargetKey());
+                    if (targetValues != null) {
+                        for (String targetText : targetValues.keySet()) {
+                            targetSelectValues.put(targetText, findSelectValues(cellSettings.getKey() + "_" + targetText + "_TEXT"));
+                        }
+                    }
+                    cascadeSelectValues.put(cellSettings.getKey(), targetSelectValues);
+                }
+            }
+        }
 
-            if (result.getErrors().size() > 0){
-                result.setCompleted(false);
+        /**
+         * 下拉的文字与值
+         * @param key
+         * @return
+         */
+        Map<String, String> getSelectValues(String key) {
+            Map<String, String> selectValues = columnSelectValues.get(key);
+            return selectValues == null ? Collections.<String, String>emptyMap() : selectValues;
+        }
+
+        /**
+         * 联动下拉的文字与值
+         * @param key
+         * @param targetText 被联动列的文字
+         * @return
+         */
+        Map<String, String> getSelectValues(String key, String targetText) {
+            ConcurrentMap<String, Map<String, String>> targetSelectValues = cascadeSelectValues.get(key);
+            if (targetSelectValues == null) {
+                return Collections.emptyMap();
             }
+            String thisTargetText = String.valueOf(targetText);
+            Map<String, String> selectValues = targetSelectValues.get(thisTargetText);
+            if (selectValues == null) {
+                selectValues = findSelectValues(key + "_" + thisTargetText + "_TEXT");
+                targetSelectValues.putIfAbsent(thisTargetText, selectValues);
+            }
+            return selectValues;
         }
 
-        cleanCacheData(sheets);
+        private Map<String, String> findSelectValues(String formulaString) {
+            Map<String, String> selectValues = selectValuesByName.get(FormulaNames.digest(formulaString));
+            return selectValues == null ? Collections.<String, String>emptyMap() : selectValues;
+        }
+    }
 
-        result.setSheetSettings(sheets);
+    /**
+     * 读取一行数据
+     * @param activeRow
+     * @param plan
+     * @param selectIndex
+     * @param sheetIndex
+     * @param result
+     * @return 行数据对象，出错时返回null
+     * @Description: 循环每一列按列所给的参数进行处理
+     */
+    private Object loadRow(SheetRow activeRow, CompiledSheetPlan plan, SelectIndex selectIndex, int sheetIndex, OfficeIoResult result) {
+        // 第一行的各列放在一个MAP中
+        Object resultObj;
+        try {
+            if (plan.getDataClazzType() != null){
+                resultObj = plan.getDataClazzType().newInstance();
+            }else {
+                resultObj = new HashMap();
+            }
+        } catch (InstantiationException e) {
+            log.error(e.getMessage());
+            resultObj = new HashMap();
+        } catch (IllegalAccessException e) {
+            log.error(e.getMessage());
+            resultObj = new HashMap();
+        }
 
-        return result;
+        Map<String,String> selectTargetValueMap = plan.hasSelectTarget() ? new HashMap<String, String>() : null;
+        boolean mapRow = resultObj instanceof Map;
+        ColumnPlan[] columns = plan.getColumns();
+        for (int i = 0; i < columns.length; i++) {
+            if (!loadCell(activeRow, plan, columns[i], selectIndex, resultObj, mapRow, selectTargetValueMap, result, sheetIndex)) {
+                return null;
+            }
+        }
+        return resultObj;
     }
 
     /**
-     * 将数据 放入对象
-     * @param targetObj
-     * @param cellSettings
-     * @param value
+     * 读取一个单元格并放入行数据对象
+     * @param mapRow 行数据对象是否为Map
+     * @return 出错时返回false，跳过行处理
      */
-    private void setValueToObject (Object targetObj,CellSettings cellSettings,Object value){
-        if (targetObj instanceof Map){
-            ((Map) targetObj).put(cellSettings.getKey(),value);
-        }else {
-            BeanUtils.invokeSetter(targetObj, cellSettings.getKey(), value,cellSettings.getCellClass());
+    private boolean loadCell(SheetRow activeRow, CompiledSheetPlan plan, ColumnPlan column, SelectIndex selectIndex, Object resultObj, boolean mapRow,
+                             Map<String,String> selectTargetValueMap, OfficeIoResult result, int sheetIndex) {
+        CellSettings cellSettings = column.getCellSettings();
+        int columnIndex = column.getColumnIndex();
+        // 空单元格与跳过的列不做处理
+        if (cellSettings.isSkip() || !activeRow.hasCell(columnIndex)) {
+            return true;
+        }
+        Object obj;
+        try {
+            obj = getCellValue(activeRow, column, selectIndex, selectTargetValueMap);
+        } catch (XSSFCellTypeException e) {
+            recordSetCellDataValueException(result, activeRow, plan, sheetIndex, activeRow.getAddress(columnIndex), cellSettings, e);
+            return false;
+        }
+        //判断规则
+        if (!checkRule(column, activeRow, obj, result, sheetIndex)) {
+            return false;
         }
+        (mapRow ? column.getMapBinder() : column.getBinder()).bind(resultObj, obj);
+        return true;
     }
 
     /**
      * 读取单元格数据
-     * @param cell
-     * @param cellSettings
-     * @param workbook
+     * @param activeRow
+     * @param column
+     * @param selectIndex
+     * @param selectTargetValueMap
      * @return
      * @throws XSSFCellTypeException
      * @author: wujinglei
      * @date: 2014年6月11日 下午1:22:06
      * @Description: 按 settings 取出列中的值
      */
-    private Object getCellValue(Cell cell,SheetSettings sheetSettings, CellSettings cellSettings, Workbook workbook,Map<String,String> selectTargetValueMap) throws XSSFCellTypeException{
-        //如果有静态值，直接返回
+    private Object getCellValue(SheetRow activeRow, ColumnPlan column, SelectIndex selectIndex, Map<String,String> selectTargetValueMap) throws XSSFCellTypeException{
+        CellSettings cellSettings = column.getCellSettings();
+        int columnIndex = column.getColumnIndex();
         String cellValue;
         try{
-            if (cellSettings != null && cellSettings.getHasStaticValue()) {
+            // 数字单元格直接按列的类型转换，不经过文本
+            if (column.isDirectNumber() && activeRow.isNumber(columnIndex)) {
+                double number = activeRow.getNumber(columnIndex);
+                Object numberValue = Double.isNaN(number) || Double.isInfinite(number) ? null : column.getConverter().convertNumber(number);
+                if (numberValue != null) {
+                    return numberValue;
+                }
+            }
+            //如果有静态值，直接返回
+            if (cellSettings.getHasStaticValue()) {
                 cellValue = cellSettings.getStaticValue();
             }else {
-                switch (cell.getCellTypeEnum()) {
-                    case BLANK:
-                        cellValue = null;
-                        break;
-                    case BOOLEAN:
-                        cellValue = String.valueOf(cell.getBooleanCellValue());
-                        break;
-                    case FORMULA:
-                        cellValue = String.valueOf(cell.getCellFormula());
-                        break;
-                    case NUMERIC:
-                        cellValue = String.valueOf(cell.getNumericCellValue());
-                        if (HSSFDateUtil.isCellDateFormatted(cell)) {
-                            cellValue = CellDataConverter.date2Str(HSSFDateUtil.getJavaDate(cell.getNumericCellValue()), DatePattern.DATE_FORMAT_DAY.getValue());
-                        } else {
-                            cellValue = CellDataConverter.scientificNotation(cellValue);
-                        }
-                        break;
-                    case STRING:
-                        cellValue = cell.getStringCellValue();
-                        break;
-                    default:
-                        cellValue = null;
-                        break;
-                }
+                cellValue = activeRow.getCellText(columnIndex);
             }
         }catch (Exception e){
             throw new XSSFCellTypeException("获取单元格数据时发生异常: " + e.getMessage());
         }
 
-
-        if (sheetSettings.getSelectTargetSet().size() > 0){
-            if (sheetSettings.getSelectTargetSet().contains(cellSettings.getKey())){
-                selectTargetValueMap.put(cellSettings.getKey(),cellValue);
-            }
+        if (column.isSelectTarget()){
+            selectTargetValueMap.put(cellSettings.getKey(),cellValue);
         }
 
         // 处理下拉选择问题
-        if (cellSettings.getSelect()){
+        if (cellSettings.getSelect() && !StringUtils.isEmpty(cellValue)){
+            Map<String, String> selectValues;
             if (!cellSettings.getSelectCascadeFlag()){
-                String formulaString = cellSettings.getKey() + "_TEXT";
-                List<String> mapList = sheetSettings.getSelectMap().get(digestFormulaName(formulaString));
-                int matchIndex = mapList.indexOf(cellValue);
-                if (matchIndex != -1){
-                    cellValue = sheetSettings.getSelectMap().get(digestFormulaName(formulaString) + "_value").get(matchIndex);
-                }else{
-                    // TODO warn
-                }
+                selectValues = selectIndex.getSelectValues(cellSettings.getKey());
             }else {
-                String formulaString = cellSettings.getKey() + "_" + selectTargetValueMap.get(cellSettings.getSelectTargetKey()) + "_TEXT";
-                List<String> mapList = sheetSettings.getSelectMap().get(digestFormulaName(formulaString));
-                int matchIndex = mapList.indexOf(cellValue);
-                if (matchIndex != -1){
-                    cellValue = sheetSettings.getSelectMap().get(digestFormulaName(formulaString) + "_value").get(matchIndex);
-                }else{
-                    // TODO warn
-                }
+                selectValues = selectIndex.getSelectValues(cellSettings.getKey(), selectTargetValueMap.get(cellSettings.getSelectTargetKey()));
             }
-        }
-
-        //类型是否是自动匹配
-        if (CellDataType.AUTO != cellSettings.getCellDataType() && cellValue != null) {
-            switch (cellSettings.getCellDataType()) {
-                case VARCHAR:
-                    // XLS格式为数据的，去掉最后的.0
-                    if (cell.getCellTypeEnum() == CellType.NUMERIC) {
-                        cellValue = CellDataConverter.matchNumber2Varchar(cellValue);
-                    }
-                    return cellValue;
-                case NUMBER:
-                    try {
-                        if (!"".equals(cellValue)) {
-                            if (cellSettings.getCellClass() == Double.class){
-                                return Double.valueOf(cellValue);
-                            }
-                            if (cellSettings.getCellClass() == Float.class){
-                                return Float.valueOf(cellValue);
-                            }
-                            return new BigDecimal(cellValue);
-                        }
-                    } catch (Exception e) {
-                        throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Number: " + e.getMessage());
-                    }
-                case INTEGER:
-                    try {
-                        if (!"".equals(cellValue)) {
-                            cellValue = CellDataConverter.matchNumber2Varchar(cellValue);
-                            return Integer.valueOf(cellValue);
-                        }
-                        break;
-                    } catch (Exception e) {
-                        throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Integer: " + e.getMessage());
-                    }
-                case BIGINT:
-                    try {
-                        if (!"".equals(cellValue)) {
-                            cellValue = CellDataConverter.matchNumber2Varchar(cellValue);
-                            return Long.valueOf(cellValue);
-                        }
-                        break;
-                    } catch (Exception e) {
-                        throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Long: " + e.getMessage());
-                    }
-                case BOOLEAN:
-                    try {
-                        if (!"".equals(cellValue)) {
-                            return Boolean.valueOf(cellValue);
-                        }
-                        break;
-                    } catch (Exception e) {
-                        throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to Boolean: " + e.getMessage());
-                    }
-                case DATE:
-                    try {
-                        if (!"".equals(cellValue)) {
-                            return CellDataConverter.str2Date(cellValue);
-                        }
-                        break;
-                    } catch (Exception e) {
-                        throw new XSSFCellTypeException("Cell Value[" + cellValue + "] can not to DATE: " + e.getMessage());
-                    }
-                case FORMULA:
-                    if (CellType.FORMULA == cell.getCellTypeEnum()) {
-                        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-                        evaluator.evaluateFormulaCellEnum(cell);
-                        return evaluator.evaluate(cell).getNumberValue();
-                    } else {
-                        throw new XSSFCellTypeException("Cell Type error,Cell Type is not FORMULA: " + cellSettings.getKey());
-                    }
-                default:
-                    return null;
+            String selectValue = selectValues.get(cellValue);
+            if (selectValue == null){
+                throw new XSSFCellTypeException("Cell Value[" + cellValue + "] is not in select list");
             }
+            cellValue = selectValue;
         }
 
-        return cellValue;
-
-    }
-
-    /**
-     * 读取对象中的数据
-     * @param cellSettings
-     * @param bean
-     * @return
-     * @author: wujinglei
-     * @date: 2014年6月11日 下午4:47:09
-     * @Description: 取出CELL所对应的值
-     */
-    private String getValue(CellSettings cellSettings, Object bean) {
-        //如果有静态值，直接返回
-        if (cellSettings.getHasStaticValue()) {
-            return cellSettings.getStaticValue();
-        }
-
-        Object returnObj = null;
-        returnObj = BeanUtils.invokeGetter(bean, cellSettings.getKey());
-
-        if (returnObj instanceof Date) {
-            returnObj = CellDataConverter.date2Str((Date) returnObj, cellSettings.getPattern().getValue());
-        }
-
-        //处理固定数据
-        if (cellSettings.getFixedValue()) {
-            returnObj = cellSettings.getFixedMap().get(String.valueOf(returnObj));
-        }
-
-        if (returnObj == null) {
-            returnObj = "";
+        if (cellValue == null) {
+            return null;
         }
-
-        return String.valueOf(returnObj);
+        return column.getConverter().convert(cellValue, activeRow, columnIndex);
     }
 
     /**
      * 创建 头
-     * @param workbook
+     * @param stylePool
      * @param row
      * @param xlsCellIndex
      * @param cellSettings
      * @return
      */
-    private Cell createHeaderCell(Workbook workbook, Row row, int xlsCellIndex, CellSettings cellSettings) {
+    private Cell createHeaderCell(CellStylePool stylePool, Row row, int xlsCellIndex, CellSettings cellSettings) {
         // 构建一个CELL
         Cell cell = row.createCell(xlsCellIndex);
         // 设置CELL为文本格式
         cell.setCellType(CellType.STRING);
 
-        cell.setCellStyle(getCellStyle(workbook, cellSettings, true));
+        cell.setCellStyle(getCellStyle(stylePool, cellSettings, true));
 
         return cell;
     }
 
     /**
      * 创建单元格
-     * @param workbook
      * @param row
-     * @param xlsCellIndex
-     * @param cellSettings
+     * @param column
+     * @param style
      * @return
      */
-    private Cell createDataCell(Workbook workbook, Row row, int xlsCellIndex, CellSettings cellSettings) {
+    private Cell createDataCell(Row row, ColumnPlan column, CellStyle style) {
         // 构建一个CELL
-        Cell cell = row.createCell(xlsCellIndex);
+        Cell cell = row.createCell(column.getColumnIndex());
         // 设置CELL格式
-        if (cellSettings.getCellDataType() != null) {
-            switch (cellSettings.getCellDataType()) {
-                case NUMBER:
-                    cell.setCellType(CellType.NUMERIC);
-                    break;
-                default:
-                    cell.setCellType(CellType.STRING);
-                    break;
-            }
+        if (column.getConverter().getCellType() != null) {
+            cell.setCellType(column.getConverter().getCellType());
         }
-        cell.setCellStyle(getCellStyle(workbook, cellSettings, false));
+        cell.setCellStyle(style);
         return cell;
     }
 
     /**
-     * @param sheet
-     * @param cell
-     * @param cellSettings
+     * 取得单元格写入的值，数字、布尔值按属性的类型写入，不经过文本；
+     * 日期列的日期写入Excel的日期数字，按列的日期样式显示，其他列的日期按格式转为文本
+     * @param column
      * @param dataBean
+     * @return 公式列及空值时为null
+     */
+    private Object getCellDataValue(ColumnPlan column, Object dataBean) {
+        if (column.getCellDataType() == CellDataType.FORMULA) {
+            return null;
+        }
+        CellSettings cellSettings = column.getCellSettings();
+        Object value;
+        //如果有静态值，直接写入
+        if (cellSettings.getHasStaticValue()) {
+            value = cellSettings.getStaticValue();
+        } else {
+            value = column.readValue(dataBean);
+            if (value instanceof Date) {
+                if (isExcelDateColumn(column)) {
+                    double excelDate = DateUtil.getExcelDate((Date) value);
+                    if (DateUtil.isValidExcelDate(excelDate)) {
+                        return Double.valueOf(excelDate);
+                    }
+                }
+                // 1900年之前的日期Excel无法表示，与其他列的日期一样按文本写入
+                value = CellDataConverter.date2Str((Date) value, cellSettings.getPattern().getValue());
+            }
+            //处理固定数据
+            if (cellSettings.getFixedValue()) {
+                value = cellSettings.getFixedMap().get(String.valueOf(value));
+            }
+        }
+        return value == null ? null : column.getConverter().toCellValue(value);
+    }
+
+    /**
+     * 是否以Excel日期写入的列
+     * @param column
+     * @return
+     */
+    private boolean isExcelDateColumn(ColumnPlan column) {
+        CellSettings cellSettings = column.getCellSettings();
+        return column.getCellDataType() == CellDataType.DATE && cellSettings.getPattern() != null && !cellSettings.getFixedValue();
+    }
+
+    /**
+     * @param cell
+     * @param plan
+     * @param column
+     * @param hasData   是否为数据行，模板的DEMO行只写入静态值
+     * @param cellValue getCellDataValue取得的值
      * @return
      */
-    private void setCellDataValue(Sheet sheet, Cell cell, SheetSettings sheetSettings,CellSettings cellSettings, Object dataBean) {
+    private void setCellDataValue(Cell cell, CompiledSheetPlan plan, ColumnPlan column, boolean hasData, Object cellValue) {
+        CellSettings cellSettings = column.getCellSettings();
         //写入内容
         if (cellSettings.getHasStaticValue()) {
             cell.setCellValue(cellSettings.getStaticValue());
         }
-        if (cellSettings.getSelect()) {
-            StringBuilder formulaString = new StringBuilder();
-            if (cellSettings.getSelectCascadeFlag()){
-                String addressFlag = sheetSettings.getCellAddressMap().get(cellSettings.getSelectTargetKey());
-                // =INDIRECT(VLOOKUP(A1,Sheet2!A:B,2,0))
-                formulaString.append("INDIRECT(VLOOKUP(");
-                formulaString.append("CONCATENATE(\"");
-                formulaString.append(cellSettings.getKey());
-                formulaString.append("_\",");
-                formulaString.append(addressFlag);
-                formulaString.append(cell.getAddress().getRow() + 1);
-                formulaString.append("),select_");
-                formulaString.append(sheetSettings.getSheetSeq());
-                formulaString.append("_text");
-                formulaString.append("!A:B,2,0))");
-            }else {
-                formulaString.append(digestFormulaName(cellSettings.getKey() + "_TEXT"));
-            }
-            setSelectDataValidation(sheet,formulaString.toString(),cell.getRowIndex(),cell.getColumnIndex());
-        }
-
-        if (dataBean != null) {
-            if (cellSettings.getCellDataType() != CellDataType.FORMULA){
-                String reVal = getValue(cellSettings, dataBean);
-                if (!StringUtils.isBlank(reVal)) {
-                    switch (cellSettings.getCellDataType()){
-                        case NUMBER:
-                            cell.setCellValue(new BigDecimal((reVal)).doubleValue());
-                            break;
-                        case VARCHAR:
-                            cell.setCellValue(reVal);
-                            break;
-                        case DATE:
-                            cell.setCellValue(reVal);
-                            break;
-                        case BIGINT:
-                            cell.setCellValue(Long.valueOf(reVal));
-                            break;
-                        case INTEGER:
-                            cell.setCellValue(Integer.valueOf(reVal));
-                            break;
-                        case BOOLEAN:
-                            cell.setCellValue(Boolean.valueOf(reVal));
-                            break;
-                        default:
-                            cell.setCellValue(reVal);
-                    }
+
+        if (hasData) {
+            if (column.getCellDataType() != CellDataType.FORMULA){
+                if (cellValue != null) {
+                    column.getConverter().writeCellValue(cell, cellValue);
                 }
             }else {
                 FormulaSettings formulaSettings = cellSettings.getFormulaSettings();
                 if (formulaSettings != null){
-                    String formulaStr = createFormulaByGroup(sheetSettings,cell,formulaSettings.getFormulaType(),formulaSettings.getGroupName());
+                    String formulaStr = createFormulaByGroup(plan,cell,formulaSettings.getFormulaType(),column.getFormulaGroup());
                     cell.setCellFormula(formulaStr);
                 }
 
@@ -1025,15 +1881,50 @@ public final class OfficeIoFactory {
         }
     }
 
+    /**
+     * 取得样式，相同取值的样式在工作簿中只创建一次
+     * @param stylePool
+     * @param cellSettings
+     * @param isTitle
+     * @return
+     */
+    private CellStyle getCellStyle(CellStylePool stylePool, CellSettings cellSettings, boolean isTitle) {
+        return getCellStyle(stylePool, cellSettings, isTitle, null);
+    }
+
+    /**
+     * 取得带单元格格式的样式，相同取值与格式的样式在工作簿中只创建一次
+     * @param stylePool
+     * @param cellSettings
+     * @param isTitle
+     * @param dataFormat 单元格格式，为空时不设置
+     * @return
+     */
+    private CellStyle getCellStyle(CellStylePool stylePool, CellSettings cellSettings, boolean isTitle, String dataFormat) {
+        List<Object> key = dataFormat == null ? CellStylePool.key(cellSettings.getCellStyleSettings(), isTitle)
+                : CellStylePool.key(cellSettings.getCellStyleSettings(), isTitle, dataFormat);
+        // 并行写入sheet时共用
+        synchronized (stylePool) {
+            CellStyle style = stylePool.get(key);
+            if (style == null) {
+                style = createCellStyle(stylePool.getWorkbook(), cellSettings, isTitle);
+                if (dataFormat != null) {
+                    style.setDataFormat(stylePool.getWorkbook().createDataFormat().getFormat(dataFormat));
+                }
+                stylePool.put(key, style);
+            }
+            return style;
+        }
+    }
+
     /**
      * @param workbook
      * @param cellSettings
      * @param isTitle
      * @return
      */
-    private CellStyle getCellStyle(Workbook workbook, CellSettings cellSettings, boolean isTitle) {
+    private CellStyle createCellStyle(Workbook workbook, CellSettings cellSettings, boolean isTitle) {
         CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
         try {
             if (!isTitle) {
                 style.setFillForegroundColor(cellSettings.getCellStyleSettings().getDataForegroundColor());
@@ -1044,10 +1935,6 @@ public final class OfficeIoFactory {
                 style.setBorderBottom(cellSettings.getCellStyleSettings().getDataBorder()[3]);
                 style.setAlignment(HorizontalAlignment.CENTER);
                 style.setVerticalAlignment(VerticalAlignment.CENTER);
-
-                font.setFontName(cellSettings.getCellStyleSettings().getDataFont());
-                font.setColor(cellSettings.getCellStyleSettings().getDataFontColor());
-                font.setFontHeightInPoints(cellSettings.getCellStyleSettings().getDataSize());
             } else {
                 style.setFillForegroundColor(cellSettings.getCellStyleSettings().getTitleForegroundColor());
                 style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
@@ -1058,6 +1945,7 @@ public final class OfficeIoFactory {
                 style.setAlignment(HorizontalAlignment.CENTER);
                 style.setVerticalAlignment(VerticalAlignment.CENTER);
 
+                Font font = workbook.createFont();
                 font.setFontName(cellSettings.getCellStyleSettings().getTitleFont());
                 font.setColor(cellSettings.getCellStyleSettings().getTitleFontColor());
                 font.setFontHeightInPoints(cellSettings.getCellStyleSettings().getTitleSize());
@@ -1074,41 +1962,69 @@ public final class OfficeIoFactory {
      *
      * @param result
      * @param row
+     * @param plan
+     * @param sheetIndex
+     * @param address
+     * @param thisCellSettings
+     * @param e
+     */
+    private void recordSetCellDataValueException(OfficeIoResult result, Row row, CompiledSheetPlan plan, int sheetIndex, String address, CellSettings thisCellSettings, Exception e) {
+        result.addErrorRecord(createExceptionErrorRecord(plan.getSheetName(), address, thisCellSettings, e));
+        result.addErrorRecordRow(sheetIndex, row);
+    }
+
+    /**
+     * 统一处理异常
+     *
+     * @param result
+     * @param row
+     * @param plan
+     * @param sheetIndex
+     * @param address
+     * @param thisCellSettings
+     * @param e
+     */
+    private void recordSetCellDataValueException(OfficeIoResult result, SheetRow row, CompiledSheetPlan plan, int sheetIndex, String address, CellSettings thisCellSettings, Exception e) {
+        result.addErrorRecord(createExceptionErrorRecord(plan.getSheetName(), address, thisCellSettings, e));
+        row.addErrorRecordRow(result, sheetIndex);
+    }
+
+    /**
+     * 按异常类型生成出错记录
+     *
+     * @param sheetName
+     * @param address
      * @param thisCellSettings
      * @param e
+     * @return
      */
-    private void recordSetCellDataValueException(OfficeIoResult result, Row row, SheetSettings sheetSettings, String address, CellSettings thisCellSettings, Exception e) {
+    private ErrorRecord createExceptionErrorRecord(String sheetName, String address, CellSettings thisCellSettings, Exception e) {
         try {
             throw e;
         } catch (IllegalArgumentException illegalArgumentException) {
-            result.addErrorRecord(new ErrorRecord(sheetSettings.getSheetName(), address, thisCellSettings, "数据异常(数据类型转换导致)", "跳过行处理:" + thisCellSettings.getKey(), false));
-            result.addErrorRecordRow(sheetSettings.getSheetSeq(), row);
+            return new ErrorRecord(sheetName, address, thisCellSettings, "数据异常(数据类型转换导致)", "跳过行处理:" + thisCellSettings.getKey(), false);
         } catch (NoSuchMethodException noSuchMethodException) {
-            result.addErrorRecord(new ErrorRecord(sheetSettings.getSheetName(), address, thisCellSettings, "属性异常(无法找到相应的属性)", "跳过行处理:" + thisCellSettings.getKey(), true));
-            result.addErrorRecordRow(sheetSettings.getSheetSeq(), row);
+            return new ErrorRecord(sheetName, address, thisCellSettings, "属性异常(无法找到相应的属性)", "跳过行处理:" + thisCellSettings.getKey(), true);
         } catch (InvocationTargetException invocationTargetException) {
-            result.addErrorRecord(new ErrorRecord(sheetSettings.getSheetName(), address, thisCellSettings, "数据集异常(集合中的单个数据集异常)", "跳过行处理:" + thisCellSettings.getKey(), true));
-            result.addErrorRecordRow(sheetSettings.getSheetSeq(), row);
+            return new ErrorRecord(sheetName, address, thisCellSettings, "数据集异常(集合中的单个数据集异常)", "跳过行处理:" + thisCellSettings.getKey(), true);
         } catch (IllegalAccessException illegalAccessException) {
-            result.addErrorRecord(new ErrorRecord(sheetSettings.getSheetName(), address, thisCellSettings, "无法正常处理对应的数据：" + e.getMessage(), "跳过行处理:" + thisCellSettings.getKey(), true));
-            result.addErrorRecordRow(sheetSettings.getSheetSeq(), row);
+            return new ErrorRecord(sheetName, address, thisCellSettings, "无法正常处理对应的数据：" + e.getMessage(), "跳过行处理:" + thisCellSettings.getKey(), true);
         } catch (Exception e1) {
-            result.addErrorRecord(new ErrorRecord(sheetSettings.getSheetName(), address, thisCellSettings, "无法正常处理对应的数据：" + e.getMessage(), "跳过行处理:" + thisCellSettings.getKey(), true));
-            result.addErrorRecordRow(sheetSettings.getSheetSeq(), row);
+            return new ErrorRecord(sheetName, address, thisCellSettings, "无法正常处理对应的数据：" + e.getMessage(), "跳过行处理:" + thisCellSettings.getKey(), true);
         }
     }
 
     /**
      * 处理下拉列表问题
      * @param workbook
-     * @param sheetSettings
+     * @param plan
      * @param index
      */
-    private void createHideSelectSheet(Workbook workbook, SheetSettings sheetSettings, int index) {
+    private void createHideSelectSheet(Workbook workbook, CompiledSheetPlan plan, int index) {
         Sheet selectTextSheet = workbook.createSheet("select" + "_" + index + "_text");
         Sheet selectValueSheet = workbook.createSheet("select" + "_" + index + "_value");
 
-        CellSettings[] cellSettings = sheetSettings.getCellSettings();
+        CellSettings[] cellSettings = plan.getCellSettings();
         int selectRowIndex = 0;
 
         // 先处理没有联动的下拉
@@ -1119,7 +2035,7 @@ public final class OfficeIoFactory {
                 for (CellSettings subCell : thisCell.getSubCells()) {
                     if (subCell.getSelect() && !subCell.getSelectCascadeFlag()) {
                         setSelectRow(selectTextSheet, selectValueSheet, selectRowIndex, subCell.getSelectTextList(), subCell.getSelectValueList(),false);
-                        createSelectNameList(selectTextSheet.getSheetName(), workbook, digestFormulaName(subCell.getKey() + "_TEXT"), selectRowIndex, subCell.getSelectTextList().length, subCell.getSelectCascadeFlag());
+                        createSelectNameList(selectTextSheet.getSheetName(), workbook, FormulaNames.digest(subCell.getKey() + "_TEXT"), selectRowIndex, subCell.getSelectTextList().length, subCell.getSelectCascadeFlag());
                         selectRowIndex++;
                         textMapping.put(subCell.getKey(),subCell.getSelectTextList());
                         valueMapping.put(subCell.getKey(),subCell.getSelectValueList());
@@ -1128,7 +2044,7 @@ public final class OfficeIoFactory {
             } else {
                 if (thisCell.getSelect() && !thisCell.getSelectCascadeFlag()) {
                     setSelectRow(selectTextSheet, selectValueSheet, selectRowIndex, thisCell.getSelectTextList(), thisCell.getSelectValueList(),false);
-                    createSelectNameList(selectTextSheet.getSheetName(), workbook, digestFormulaName(thisCell.getKey() + "_TEXT"), selectRowIndex, thisCell.getSelectTextList().length, thisCell.getSelectCascadeFlag());
+                    createSelectNameList(selectTextSheet.getSheetName(), workbook, FormulaNames.digest(thisCell.getKey() + "_TEXT"), selectRowIndex, thisCell.getSelectTextList().length, thisCell.getSelectCascadeFlag());
                     selectRowIndex++;
                     textMapping.put(thisCell.getKey(),thisCell.getSelectTextList());
                     valueMapping.put(thisCell.getKey(),thisCell.getSelectValueList());
@@ -1169,7 +2085,7 @@ public final class OfficeIoFactory {
                                     for (Object obj : subCell.getSelectSourceList()) {
                                         int matchIndex = ArrayUtils.indexOf(targetValueArray, String.valueOf(BeanUtils.invokeGetter(obj, subCell.getBingKey())));
                                         if (matchIndex >= 0) {
-                                            String formulaStr = digestFormulaName(subCell.getKey() + "_" + selectRowIndex + "_TEXT");
+                                            String formulaStr = FormulaNames.digest(subCell.getKey() + "_" + selectRowIndex + "_TEXT");
                                             String[] addTextArray = new String[addTextSelectMap.get(targetTextArray[matchIndex]).size()];
                                             addTextSelectMap.get(targetTextArray[matchIndex]).toArray(addTextArray);
                                             String[] addValueArray = new String[addValueSelectMap.get(targetValueArray[matchIndex]).size()];
@@ -1220,7 +2136,7 @@ public final class OfficeIoFactory {
                                 }
 
                                 for (String key : mappingMap.keySet()) {
-                                    String formulaStr = digestFormulaName(thisCell.getKey() + "_" + key + "_TEXT");
+                                    String formulaStr = FormulaNames.digest(thisCell.getKey() + "_" + key + "_TEXT");
                                     String[] addTextArray = new String[addTextSelectMap.get(key).size()];
                                     addTextSelectMap.get(key).toArray(addTextArray);
                                     String[] addValueArray = new String[addValueSelectMap.get(mappingMap.get(key)).size()];
@@ -1363,198 +2279,147 @@ public final class OfficeIoFactory {
      * 设置下拉校验规则
      * @param sheet
      * @param formulaString
-     * @param rowIndex
+     * @param firstRowIndex
+     * @param lastRowIndex
      * @param xlsCellIndex
      */
-    private void setSelectDataValidation(Sheet sheet,String formulaString,int rowIndex,int xlsCellIndex) {
+    private void setSelectDataValidation(Sheet sheet,String formulaString,int firstRowIndex,int lastRowIndex,int xlsCellIndex) {
         XSSFDataValidationConstraint  dvConstraint = new XSSFDataValidationConstraint(DataValidationConstraint.ValidationType.LIST,formulaString);
-        CellRangeAddressList addressList = new CellRangeAddressList(rowIndex, rowIndex, xlsCellIndex, xlsCellIndex);
+        CellRangeAddressList addressList = new CellRangeAddressList(firstRowIndex, lastRowIndex, xlsCellIndex, xlsCellIndex);
         DataValidation dataValidation = sheet.getDataValidationHelper().createValidation(dvConstraint, addressList);
         dataValidation.setShowErrorBox(true);
         sheet.addValidationData(dataValidation);
     }
 
     /**
-     * 检查Cell信息
-     * @param workbook
+     * 取得导入用的sheet配置
+     * @param sheetNumbers
      * @param sheetSettings
      * @param sheetIndex
      * @return
      * @throws SheetIndexException
      */
-    private SheetSettings checkCellSettings(Workbook workbook, SheetSettings sheetSettings,int sheetIndex) throws SheetIndexException {
-
-        try {
-            int sheetNumbers = workbook.getNumberOfSheets();
-
-            // reSet sheetSeq
-            if (sheetSettings.getSheetSeq() == null) {
-                sheetSettings.setSheetSeq(sheetIndex);
-            }
-            CellSettings[] cells = sheetSettings.getCellSettings();
-
-            // checkSkipRow
-            if (sheetSettings.getSkipRows() == null) {
-                sheetSettings.setSkipRows(1);
-                for (CellSettings cellSettings : cells) {
-                    if (cellSettings.getSubCells() != null) {
-                        sheetSettings.setSkipRows(2);
-                        break;
-                    }
-                }
-            }
-
-            if (!StringUtils.isBlank(sheetSettings.getTitle())){
-                sheetSettings.setSkipRows(sheetSettings.getSkipRows() + 1);
-            }
-
-            // 处理联动下拉的Target问题
-            int cellCount = 0;
-            Map<String,Set<String>> formulaMap = new HashMap<String, Set<String>>();
-            for (CellSettings cellSettings : cells) {
-                if (cellSettings.getSubCells() != null) {
-                    for(CellSettings subCellSettings: cellSettings.getSubCells()){
-                        sheetSettings.getCellAddressMap().put(subCellSettings.getKey(),CellReference.convertNumToColString(cellCount));
-                        if (subCellSettings.getCellDataType() != CellDataType.FORMULA){
-                            if (subCellSettings.getFormulaGroupNames() != null){
-                                for(String groupName: subCellSettings.getFormulaGroupNames()){
-                                    formulaMap.put(groupName,setformulaGroupName(formulaMap.get(groupName),subCellSettings.getKey()));
-                                }
-                            }
-                        }
-
-                        if (subCellSettings.getSelectCascadeFlag()){
-                            sheetSettings.getSelectTargetSet().add(subCellSettings.getSelectTargetKey());
-                        }
-                        cellCount++;
-                    }
-                } else {
-                    sheetSettings.getCellAddressMap().put(cellSettings.getKey(), CellReference.convertNumToColString(cellCount));
-                    if (cellSettings.getCellDataType() != CellDataType.FORMULA){
-                        if (cellSettings.getFormulaGroupNames() != null){
-                            for(String groupName: cellSettings.getFormulaGroupNames()){
-                                formulaMap.put(groupName,setformulaGroupName(formulaMap.get(groupName),cellSettings.getKey()));
-                            }
-                        }
-                    }
-
-                    if (cellSettings.getSelectCascadeFlag()){
-                        sheetSettings.getSelectTargetSet().add(cellSettings.getSelectTargetKey());
-                    }
-                    cellCount++;
-                }
-            }
-            sheetSettings.setCellCount(cellCount);
-
-            for (CellSettings cellSettings : cells) {
-                if (cellSettings.getSubCells() != null) {
-                    for (CellSettings subCellSettings : cellSettings.getSubCells()) {
-                        if (subCellSettings.getCellDataType() == CellDataType.FORMULA){
-                            subCellSettings.getFormulaSettings().setGroupName(formulaMap.get(subCellSettings.getFormulaGroupNames()[0]));
-                        }
-                    }
-                }else {
-                    if (cellSettings.getCellDataType() == CellDataType.FORMULA){
-                        cellSettings.getFormulaSettings().setGroupName(formulaMap.get(cellSettings.getFormulaGroupNames()[0]));
-                    }
-                }
-            }
-
-            if (sheetSettings.getSheetSeq() > sheetNumbers) {
-                throw new SheetIndexException("无法在文件中找到指定的sheet序号");
-            }
-
-            // check entityDataType
-            if (sheetSettings.getDataClazzType() != null){
-                for (CellSettings cellSettings: cells){
-                    if (cellSettings.getSubCells() == null){
-                        if (cellSettings.getCellDataType() != CellDataType.FORMULA){
-                            if (cellSettings.getCellClass() == null){
-                                cellSettings.setCellClass(FieldUtils.getDeclaredFieldType(sheetSettings.getDataClazzType(),cellSettings.getKey()));
-                                cellSettings.setCellDataType(FieldUtils.getCellDataType(cellSettings.getCellClass()));
-                            }
-                        }else {
-                            continue;
-                        }
-                    }else {
-                        for (CellSettings subCell: cellSettings.getSubCells()){
-                            if (subCell.getCellDataType() != CellDataType.FORMULA){
-                                subCell.setCellClass(FieldUtils.getDeclaredFieldType(sheetSettings.getDataClazzType(),subCell.getKey()));
-                                subCell.setCellDataType(FieldUtils.getCellDataType(subCell.getCellClass()));
-                            }else {
-                                continue;
-                            }
-                        }
-                    }
-                }
-            }
-
-            sheetSettings.setCellSettings(cells);
-        } catch (Exception e){
-            log.error(e.getMessage(), e);
-            throw new SheetIndexException(e.getMessage());
+    private CompiledSheetPlan compileSheetPlan(int sheetNumbers, SheetSettings sheetSettings, int sheetIndex) throws SheetIndexException {
+        CompiledSheetPlan plan = CompiledSheetPlan.of(sheetSettings);
+        if (plan.getSheetSeq(sheetIndex) >= sheetNumbers) {
+            throw new SheetIndexException("无法在文件中找到指定的sheet序号");
         }
-        return sheetSettings;
+        return plan;
     }
 
     /**
      * 获取下拉信息
      * @param workbook
-     * @param sheetSettings
      * @param thisSheetIndex
+     * @param selectIndex
      */
-    private void getSelectSheetMap(Workbook workbook,SheetSettings sheetSettings,int thisSheetIndex){
+    private void getSelectSheetMap(Workbook workbook,int thisSheetIndex,SelectIndex selectIndex){
         List<Name> list = (List<Name>) workbook.getAllNames();
         for (Name name: list){
-            if (name.getRefersToFormula().indexOf("_" + thisSheetIndex + "_") != 0){
-                sheetSettings.getSelectMap().put(name.getNameName(),new ArrayList<String>());
-                sheetSettings.getSelectMap().put(name.getNameName() + "_value",new ArrayList<String>());
+            String refersToFormula = name.getRefersToFormula();
+            if (refersToFormula.indexOf("_" + thisSheetIndex + "_") != 0){
+                String textSheetName = refersToFormula.split("!")[0];
+                int rowIndex = getSelectRowNum(refersToFormula) - 1;
 
-                Sheet textSheet = workbook.getSheet(name.getRefersToFormula().split("!")[0]);
-                Sheet valueSheet = workbook.getSheet(name.getRefersToFormula().split("!")[0].replace("_text","_value"));
+                Row textRow = workbook.getSheet(textSheetName).getRow(rowIndex);
+                Row valueRow = workbook.getSheet(textSheetName.replace("_text","_value")).getRow(rowIndex);
 
-                String address = name.getRefersToFormula().split("!")[1];
-
-                int rowNum = Integer.valueOf(address.split(":")[0].substring(address.split(":")[0].lastIndexOf("$") + 1));
-                String[] cellAddress = address.replaceAll("['$]","").replaceAll(String.valueOf(rowNum),"").split(":");
+                putSelectMap(selectIndex, name.getNameName(), refersToFormula,
+                        textRow == null ? null : new PoiSheetRow(textRow), valueRow == null ? null : new PoiSheetRow(valueRow));
+            }
+        }
+    }
 
-                Row textRow = textSheet.getRow(rowNum - 1);
-                Row valueRow = valueSheet.getRow(rowNum - 1);
+    /**
+     * 获取下拉信息
+     * @param reader
+     * @param thisSheetIndex
+     * @param selectIndex
+     * @Description: 流式读取时，下拉sheet按需读取并缓存
+     */
+    private void getSelectSheetMap(XlsxStreamReader reader,int thisSheetIndex,SelectIndex selectIndex) throws Exception {
+        Map<String, Map<Integer, SheetRow>> selectSheetRows = new HashMap<String, Map<Integer, SheetRow>>();
+        for (Map.Entry<String, String> name : reader.getDefinedNames().entrySet()){
+            String refersToFormula = name.getValue();
+            if (refersToFormula.indexOf("_" + thisSheetIndex + "_") != 0){
+                String textSheetName = refersToFormula.split("!")[0];
+                int rowIndex = getSelectRowNum(refersToFormula) - 1;
+
+                SheetRow textRow = getSelectSheetRows(reader, selectSheetRows, textSheetName).get(rowIndex);
+                SheetRow valueRow = getSelectSheetRows(reader, selectSheetRows, textSheetName.replace("_text","_value")).get(rowIndex);
+
+                putSelectMap(selectIndex, name.getKey(), refersToFormula, textRow, valueRow);
+            }
+        }
+    }
 
-                if (cellAddress.length > 1){
-                    for (int cellIndex = CellReference.convertColStringToIndex(cellAddress[0]); cellIndex <= CellReference.convertColStringToIndex(cellAddress[1]); cellIndex++) {
-                        Cell textCell = textRow.getCell(cellIndex);
-                        Cell valueCell = valueRow.getCell(cellIndex);
-                        if (textCell != null){
-                            sheetSettings.getSelectMap().get(name.getNameName()).add(textCell.getStringCellValue());
-                            sheetSettings.getSelectMap().get(name.getNameName() + "_value").add(valueCell.getStringCellValue());
-                        }
+    /**
+     * 读取下拉sheet中的所有行
+     * @param reader
+     * @param selectSheetRows
+     * @param sheetName
+     * @return
+     */
+    private Map<Integer, SheetRow> getSelectSheetRows(XlsxStreamReader reader, Map<String, Map<Integer, SheetRow>> selectSheetRows, String sheetName) throws Exception {
+        Map<Integer, SheetRow> rows = selectSheetRows.get(sheetName);
+        if (rows == null) {
+            final Map<Integer, SheetRow> sheetRows = new HashMap<Integer, SheetRow>();
+            int sheetIndex = reader.getSheetIndex(sheetName);
+            if (sheetIndex >= 0) {
+                reader.readSheet(sheetIndex, new XlsxSheetHandler.RowListener() {
+                    @Override
+                    public boolean onRow(SheetRow row) {
+                        sheetRows.put(row.getRowNum(), row);
+                        return true;
                     }
-                }
+                });
             }
+            selectSheetRows.put(sheetName, sheetRows);
+            rows = sheetRows;
         }
+        return rows;
     }
 
     /**
-     * 清理缓存
-     * @param sheetSettings
+     * 将下拉名称对应的文字与值放入selectIndex
+     * @param selectIndex
+     * @param nameName
+     * @param refersToFormula
+     * @param textRow
+     * @param valueRow
      */
-    private void cleanCacheData(SheetSettings[] sheetSettings){
-        for (SheetSettings thisSheetSettings: sheetSettings){
-            thisSheetSettings.getSelectTargetSet().clear();
-            thisSheetSettings.getSelectMap().clear();
+    private void putSelectMap(SelectIndex selectIndex, String nameName, String refersToFormula, SheetRow textRow, SheetRow valueRow) {
+        Map<String, String> selectValues = new HashMap<String, String>();
+        selectIndex.putSelectValues(nameName, selectValues);
+
+        String address = refersToFormula.split("!")[1];
+        int rowNum = getSelectRowNum(refersToFormula);
+        String[] cellAddress = address.replaceAll("['$]","").replaceAll(String.valueOf(rowNum),"").split(":");
+
+        if (cellAddress.length > 1 && textRow != null && valueRow != null){
+            for (int cellIndex = CellReference.convertColStringToIndex(cellAddress[0]); cellIndex <= CellReference.convertColStringToIndex(cellAddress[1]); cellIndex++) {
+                if (textRow.hasCell(cellIndex)){
+                    String text = textRow.getCellText(cellIndex);
+                    // 文字重复时以第一个为准
+                    if (!selectValues.containsKey(text)){
+                        selectValues.put(text, valueRow.getCellText(cellIndex));
+                    }
+                }
+            }
         }
     }
 
-    private Set<String> setformulaGroupName(Set<String> group,String addName){
-        if (group == null){
-            group = new HashSet<String>();
-        }
-        group.add(addName);
-        return group;
+    /**
+     * 下拉名称所引用的行号
+     * @param refersToFormula
+     * @return
+     */
+    private int getSelectRowNum(String refersToFormula) {
+        String address = refersToFormula.split("!")[1];
+        return Integer.valueOf(address.split(":")[0].substring(address.split(":")[0].lastIndexOf("$") + 1));
     }
 
-    private String createFormulaByGroup(SheetSettings sheetSettings,Cell cell,FormulaType formulaType,Set<String> group){
+    private String createFormulaByGroup(CompiledSheetPlan plan,Cell cell,FormulaType formulaType,Set<String> group){
         StringBuffer formulaStr = new StringBuffer();
         formulaStr.append(formulaType.getValue());
         formulaStr.append("(");
@@ -1563,23 +2428,9 @@ public final class OfficeIoFactory {
             if (i++ > 0) {
                 formulaStr.append(",");
             }
-            formulaStr.append(sheetSettings.getCellAddressMap().get(name) + (cell.getRowIndex() + 1));
+            formulaStr.append(plan.getCellAddress(name) + (cell.getRowIndex() + 1));
         }
         formulaStr.append(")");
         return formulaStr.toString();
     }
-
-    private String digestFormulaName(String formulaStr) {
-        if (messageDigest == null){
-            try{
-                messageDigest = MessageDigest.getInstance("md5");
-            }catch (NoSuchAlgorithmException e){
-                log.error(e.getMessage(),e);
-                return formulaStr;
-            }
-        }
-
-        messageDigest.update(formulaStr.getBytes());
-        return "formulaStr_" + new BigInteger(1, messageDigest.digest()).toString(16);
-    }
 }
@@ -1,5 +1,7 @@
 package com.jin.commons.poi;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,6 +10,8 @@ import java.util.Map;
 import com.jin.commons.poi.model.WrongRecord;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import com.jin.commons.poi.model.ErrorRecord;
 import com.jin.commons.poi.model.SheetSettings;
@@ -49,9 +53,9 @@ public final class OfficeIoResult<T> {
 	private final List originalList = new ArrayList();
 	
 	/**
-	 * 导出结果集
+	 * 导出结果集，首次取得时创建；流式导出时为SXSSFWorkbook
 	 */
-	private final XSSFWorkbook resultWorkbook = new XSSFWorkbook();
+	private Workbook resultWorkbook;
 
 	private SheetSettings[] sheetSettings;
 	
@@ -59,6 +63,11 @@ public final class OfficeIoResult<T> {
 	 * 返回成功的结果条数
 	 */
 	private Long[] resultTotal;
+
+	/**
+	 * 批量写入失败的结果条数
+	 */
+	private Long[] failedTotal;
 	
 	/**
 	 * 文件中的行数
@@ -72,6 +81,16 @@ public final class OfficeIoResult<T> {
 
 	private Boolean isCompleted = true;
 
+	/**
+	 * 出错超过ImportSettings中的限制、停止读取时为true，此时各数量只包含已读取的部分
+	 */
+	private Boolean isTruncated = false;
+
+	/**
+	 * 已读取的出错行数
+	 */
+	private Long errorRowCount;
+
 	/**
 	 * @author: wujinglei
 	 * @date: 2014年6月12日 下午1:10:45
@@ -100,6 +119,16 @@ public final class OfficeIoResult<T> {
 		}
 	}
 
+	/**
+	 * 单个sheet的读取结果，读取完成后合并到总结果中
+	 *
+	 * @param sheetCount the sheet count
+	 */
+	OfficeIoResult(int sheetCount){
+		resultTotal = new Long[sheetCount];
+		fileTotalRow = new Long[sheetCount];
+	}
+
 	/**
 	 * Get original list list.
 	 *
@@ -127,6 +156,24 @@ public final class OfficeIoResult<T> {
 		this.resultTotal = resultTotal;
 	}
 
+	/**
+	 * Get failed total long [ ].
+	 *
+	 * @return the failedTotal
+	 */
+	public Long[] getFailedTotal() {
+		return failedTotal;
+	}
+
+	/**
+	 * Sets failed total.
+	 *
+	 * @param failedTotal the failedTotal to set
+	 */
+	public void setFailedTotal(Long[] failedTotal) {
+		this.failedTotal = failedTotal;
+	}
+
 	/**
 	 * Gets errors.
 	 *
@@ -169,9 +216,57 @@ public final class OfficeIoResult<T> {
 	 * @return the resultWorkbook
 	 */
 	public XSSFWorkbook getResultWorkbook() {
+		if (resultWorkbook instanceof SXSSFWorkbook){
+			throw new IllegalStateException("流式导出的结果请使用getWorkbook()或write(OutputStream)");
+		}
+		return (XSSFWorkbook) getWorkbook();
+	}
+
+	/**
+	 * 导出结果集，流式导出时为SXSSFWorkbook，已写入临时文件的行不能再读取
+	 *
+	 * @return the workbook
+	 */
+	public Workbook getWorkbook() {
+		if (resultWorkbook == null){
+			resultWorkbook = new XSSFWorkbook();
+		}
 		return resultWorkbook;
 	}
 
+	/**
+	 * 流式导出，在创建sheet前调用
+	 *
+	 * @param rowAccessWindow   内存中保留的行数
+	 * @param compressTempFiles 是否压缩临时文件
+	 */
+	void useStreamingWorkbook(int rowAccessWindow, boolean compressTempFiles){
+		resultWorkbook = new SXSSFWorkbook(null, rowAccessWindow, compressTempFiles);
+	}
+
+	/**
+	 * 写出导出结果，流式导出时写出后删除临时文件
+	 *
+	 * @param out the out
+	 * @throws IOException the io exception
+	 */
+	public void write(OutputStream out) throws IOException {
+		try {
+			getWorkbook().write(out);
+		} finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * 删除流式导出的临时文件，未调用write时需自行调用
+	 */
+	public void dispose(){
+		if (resultWorkbook instanceof SXSSFWorkbook){
+			((SXSSFWorkbook) resultWorkbook).dispose();
+		}
+	}
+
 	/**
 	 * Add error record.
 	 *
@@ -223,6 +318,22 @@ public final class OfficeIoResult<T> {
 		targetList.add(errorRow);
 	}
 
+	/**
+	 * Add error record row.
+	 *
+	 * @param index    the index
+	 * @param errorRow the error row
+	 * @Description: 将出错行的快照放入errorRecordRow中
+	 */
+	public void addErrorRecordRow(Integer index,ErrorRow errorRow){
+		List targetList = this.errRecordRows.get(index);
+		if (targetList == null){
+			targetList = new ArrayList<ErrorRow>();
+			this.errRecordRows.put(index,targetList);
+		}
+		targetList.add(errorRow);
+	}
+
 	/**
 	 * Add error record row.
 	 *
@@ -241,6 +352,45 @@ public final class OfficeIoResult<T> {
 		targetList.add(strs);
 	}
 
+	/**
+	 * Merge sheet result.
+	 *
+	 * @param sheetIndex  the sheet index
+	 * @param sheetResult the sheet result
+	 * @Description: 将单个sheet的读取或导出结果合并进来
+	 */
+	void mergeSheetResult(int sheetIndex, OfficeIoResult<T> sheetResult){
+		errors.addAll(sheetResult.errors);
+		wrongs.addAll(sheetResult.wrongs);
+		for (Map.Entry<Integer,List> entry : sheetResult.errRecordRows.entrySet()) {
+			addErrorRecordRows(entry.getKey(), entry.getValue());
+		}
+		importList.addAll(sheetResult.importList);
+		resultTotal[sheetIndex] = sheetResult.resultTotal[sheetIndex];
+		if (fileTotalRow != null){
+			fileTotalRow[sheetIndex] = sheetResult.fileTotalRow[sheetIndex];
+		}
+		if (!sheetResult.isCompleted){
+			isCompleted = false;
+		}
+	}
+
+	/**
+	 * Add error record rows.
+	 *
+	 * @param index     the index
+	 * @param errorRows the error rows
+	 * @Description: 将多个行记录放入errorRecordRow中
+	 */
+	void addErrorRecordRows(Integer index,List errorRows){
+		List targetList = this.errRecordRows.get(index);
+		if (targetList == null){
+			targetList = new ArrayList();
+			this.errRecordRows.put(index,targetList);
+		}
+		targetList.addAll(errorRows);
+	}
+
 	/**
 	 * Print error record string.
 	 *
@@ -343,6 +493,32 @@ public final class OfficeIoResult<T> {
 		isCompleted = completed;
 	}
 
+	/**
+	 * 是否因出错超过限制而停止读取
+	 *
+	 * @return the boolean
+	 */
+	public Boolean isTruncated() {
+		return isTruncated;
+	}
+
+	void setTruncated(Boolean truncated) {
+		isTruncated = truncated;
+	}
+
+	/**
+	 * 导入时已读取的出错行数，停止读取时不包含未读取的部分
+	 *
+	 * @return the error row count
+	 */
+	public Long getErrorRowCount() {
+		return errorRowCount;
+	}
+
+	void setErrorRowCount(Long errorRowCount) {
+		this.errorRowCount = errorRowCount;
+	}
+
 	public SheetSettings[] getSheetSettings() {
 		return sheetSettings;
 	}
@@ -1,5 +1,7 @@
 package com.jin.commons.poi;
 
+import com.jin.commons.poi.model.ExportSettings;
+import com.jin.commons.poi.model.ImportSettings;
 import com.jin.commons.poi.model.SheetSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +62,26 @@ public final class OfficeIoUtils {
 		return IO_FACTORY.exportXlsx(sheetSettingsArray);
 	}
 
+	/**
+	 * 导出Xlsx，使用流式写入时结果需通过OfficeIoResult.write写出
+	 * @param sheetSettings
+	 * @param exportSettings
+	 * @return
+	 */
+	public static OfficeIoResult exportXlsx(SheetSettings sheetSettings, ExportSettings exportSettings){
+		return IO_FACTORY.exportXlsx(new SheetSettings[]{sheetSettings}, exportSettings);
+	}
+
+	/**
+	 * 导出Xlsx，使用流式写入时结果需通过OfficeIoResult.write写出
+	 * @param sheetSettingsArray
+	 * @param exportSettings
+	 * @return
+	 */
+	public static OfficeIoResult exportXlsx(SheetSettings[] sheetSettingsArray, ExportSettings exportSettings){
+		return IO_FACTORY.exportXlsx(sheetSettingsArray, exportSettings);
+	}
+
 	/**
 	 * 导入Xlsx
 	 * @param inputStream
@@ -104,6 +126,100 @@ public final class OfficeIoUtils {
 		return IO_FACTORY.importXlsx(file, new SheetSettings[]{sheetSettings});
 	}
 
+	/**
+	 * 导入Xlsx
+	 * @param inputStream
+	 * @param sheets
+	 * @param importSettings
+	 * @return
+	 */
+	public static OfficeIoResult importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings) {
+		return IO_FACTORY.importXlsx(inputStream, sheets, importSettings);
+	}
+
+	/**
+	 * 导入Xlsx
+	 * @param file
+	 * @param sheets
+	 * @param importSettings
+	 * @return
+	 */
+	public static OfficeIoResult importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings) {
+		return IO_FACTORY.importXlsx(file, sheets, importSettings);
+	}
+
+	/**
+	 * 导入Xlsx，每读取成功一行即交给rowHandler处理，结果中只保留计数与出错记录
+	 * @param inputStream
+	 * @param sheets
+	 * @param importSettings
+	 * @param rowHandler
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings, RowHandler<T> rowHandler) {
+		return IO_FACTORY.importXlsx(inputStream, sheets, importSettings, rowHandler);
+	}
+
+	/**
+	 * 导入Xlsx，每读取成功一行即交给rowHandler处理，结果中只保留计数与出错记录
+	 * @param file
+	 * @param sheets
+	 * @param importSettings
+	 * @param rowHandler
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings, RowHandler<T> rowHandler) {
+		return IO_FACTORY.importXlsx(file, sheets, importSettings, rowHandler);
+	}
+
+	/**
+	 * 流式导入Xlsx，每读取成功一行即交给rowHandler处理，内存占用与行数无关
+	 * @param inputStream
+	 * @param sheets
+	 * @param rowHandler
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(InputStream inputStream, SheetSettings[] sheets, RowHandler<T> rowHandler) {
+		return IO_FACTORY.importXlsx(inputStream, sheets, new ImportSettings().streaming(), rowHandler);
+	}
+
+	/**
+	 * 流式导入Xlsx，每读取成功一行即交给rowHandler处理，内存占用与行数无关
+	 * @param file
+	 * @param sheets
+	 * @param rowHandler
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(File file, SheetSettings[] sheets, RowHandler<T> rowHandler) {
+		return IO_FACTORY.importXlsx(file, sheets, new ImportSettings().streaming(), rowHandler);
+	}
+
+	/**
+	 * 批量导入Xlsx，读取成功的行按ImportSettings中的batchSize分批交给batchSink写入，
+	 * 写入跟不上时读取等待；resultTotal为写入成功的条数，failedTotal为写入失败的条数
+	 * @param inputStream
+	 * @param sheets
+	 * @param importSettings
+	 * @param batchSink
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(InputStream inputStream, SheetSettings[] sheets, ImportSettings importSettings, BatchSink<T> batchSink) {
+		return IO_FACTORY.importXlsx(inputStream, sheets, importSettings, batchSink);
+	}
+
+	/**
+	 * 批量导入Xlsx，读取成功的行按ImportSettings中的batchSize分批交给batchSink写入，
+	 * 写入跟不上时读取等待；resultTotal为写入成功的条数，failedTotal为写入失败的条数
+	 * @param file
+	 * @param sheets
+	 * @param importSettings
+	 * @param batchSink
+	 * @return
+	 */
+	public static <T> OfficeIoResult<T> importXlsx(File file, SheetSettings[] sheets, ImportSettings importSettings, BatchSink<T> batchSink) {
+		return IO_FACTORY.importXlsx(file, sheets, importSettings, batchSink);
+	}
+
 	/**
 	 * @author: wujinglei
 	 * @date: 2014-6-20 下午3:50:03
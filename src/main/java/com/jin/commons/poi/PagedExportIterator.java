@@ -0,0 +1,160 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.PageSource;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 分页导出的数据
+ *
+ * @author wujinglei
+ * @ClassName: PagedExportIterator
+ * @Description: 按页从PageSource取得导出数据，写入当前页时在后台预取之后的prefetchPages页；
+ * 内存中最多保留prefetchPages + 1页，读到最后一页后取消多余的预取
+ */
+final class PagedExportIterator implements Iterator {
+
+    private final PageSource pageSource;
+
+    private final int pageSize;
+
+    private final int prefetchPages;
+
+    private final ExecutorService executor;
+
+    /**
+     * 预取线程池由本类创建，结束时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 已提交的预取，按页号顺序
+     */
+    private final LinkedList<Future<List>> pendingPages = new LinkedList<Future<List>>();
+
+    private int nextPageNo = 1;
+
+    private boolean lastPage = false;
+
+    private List currentPage = Collections.emptyList();
+
+    private int currentIndex = 0;
+
+    /**
+     * @param pageSource    the page source
+     * @param pageSize      the page size
+     * @param prefetchPages 预取的页数，为0时在写入线程中按需取得
+     * @param executor      预取线程池，为空时使用单独的后台线程
+     */
+    PagedExportIterator(PageSource pageSource, int pageSize, int prefetchPages, ExecutorService executor) {
+        this.pageSource = pageSource;
+        this.pageSize = pageSize;
+        this.prefetchPages = Math.max(prefetchPages, 0);
+        if (this.prefetchPages == 0) {
+            this.executor = null;
+            this.ownExecutor = false;
+        } else if (executor != null) {
+            this.executor = executor;
+            this.ownExecutor = false;
+        } else {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "poi-export-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.ownExecutor = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (currentIndex >= currentPage.size()) {
+            if (lastPage) {
+                return false;
+            }
+            // 已写入的页不再保留
+            currentPage = Collections.emptyList();
+            List page = takePage();
+            if (page == null || page.size() < pageSize) {
+                lastPage = true;
+                cancelPendingPages();
+            }
+            currentPage = page == null ? Collections.emptyList() : page;
+            currentIndex = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.get(currentIndex++);
+    }
+
+    /**
+     * 取消未完成的预取，关闭自行创建的线程池
+     */
+    void close() {
+        cancelPendingPages();
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 取得下一页，同时保持后续prefetchPages页在预取中
+     */
+    private List takePage() {
+        if (executor == null) {
+            try {
+                return pageSource.fetchPage(nextPageNo++, pageSize);
+            } catch (Exception e) {
+                throw new IllegalStateException("分页取得导出数据失败", e);
+            }
+        }
+        while (pendingPages.size() <= prefetchPages) {
+            submitPage();
+        }
+        Future<List> page = pendingPages.removeFirst();
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("分页取得导出数据被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("分页取得导出数据失败", e.getCause());
+        }
+    }
+
+    private void submitPage() {
+        final int pageNo = nextPageNo++;
+        pendingPages.add(executor.submit(new Callable<List>() {
+            @Override
+            public List call() throws Exception {
+                return pageSource.fetchPage(pageNo, pageSize);
+            }
+        }));
+    }
+
+    private void cancelPendingPages() {
+        for (Future<List> page : pendingPages) {
+            page.cancel(true);
+        }
+        pendingPages.clear();
+    }
+}
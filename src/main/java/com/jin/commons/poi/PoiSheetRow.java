@@ -0,0 +1,173 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.DatePattern;
+import com.jin.commons.poi.utils.CellDataConverter;
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * 工作簿中的行数据
+ *
+ * @author wujinglei
+ * @ClassName: PoiSheetRow
+ * @Description: 包装POI的Row，按需读取单元格
+ */
+final class PoiSheetRow extends SheetRow {
+
+    private final Row row;
+
+    /**
+     * 公式计算，为空时使用文件中保存的公式结果
+     */
+    private final WorkbookFormulaEvaluator formulaEvaluator;
+
+    /**
+     * 出错行文本按列共用，为空时不共用
+     */
+    private final ColumnStrings columnStrings;
+
+    PoiSheetRow(Row row) {
+        this(row, null, null);
+    }
+
+    PoiSheetRow(Row row, WorkbookFormulaEvaluator formulaEvaluator, ColumnStrings columnStrings) {
+        this.row = row;
+        this.formulaEvaluator = formulaEvaluator;
+        this.columnStrings = columnStrings;
+    }
+
+    @Override
+    String getSheetName() {
+        return row.getSheet().getSheetName();
+    }
+
+    @Override
+    int getRowNum() {
+        return row.getRowNum();
+    }
+
+    @Override
+    boolean hasCell(int columnIndex) {
+        return row != null && row.getCell(columnIndex) != null;
+    }
+
+    @Override
+    CellType getCellType(int columnIndex) {
+        return row.getCell(columnIndex).getCellTypeEnum();
+    }
+
+    @Override
+    String getCellText(int columnIndex) {
+        Cell cell = row.getCell(columnIndex);
+        String cellValue;
+        switch (cell.getCellTypeEnum()) {
+            case BLANK:
+                cellValue = null;
+                break;
+            case BOOLEAN:
+                cellValue = String.valueOf(cell.getBooleanCellValue());
+                break;
+            case FORMULA:
+                cellValue = String.valueOf(cell.getCellFormula());
+                break;
+            case NUMERIC:
+                if (HSSFDateUtil.isCellDateFormatted(cell)) {
+                    cellValue = CellDataConverter.date2Str(HSSFDateUtil.getJavaDate(cell.getNumericCellValue()), DatePattern.DATE_FORMAT_DAY.getValue());
+                } else {
+                    cellValue = CellDataConverter.number2Str(cell.getNumericCellValue());
+                }
+                break;
+            case STRING:
+                cellValue = cell.getStringCellValue();
+                break;
+            default:
+                cellValue = null;
+                break;
+        }
+        return cellValue;
+    }
+
+    @Override
+    boolean isNumber(int columnIndex) {
+        Cell cell = row.getCell(columnIndex);
+        return cell.getCellTypeEnum() == CellType.NUMERIC && !HSSFDateUtil.isCellDateFormatted(cell);
+    }
+
+    @Override
+    double getNumber(int columnIndex) {
+        return row.getCell(columnIndex).getNumericCellValue();
+    }
+
+    @Override
+    double getFormulaNumberValue(int columnIndex) {
+        Cell cell = row.getCell(columnIndex);
+        if (formulaEvaluator != null) {
+            return formulaEvaluator.evaluateNumber(cell);
+        }
+        // 与计算结果一致，非数字的结果按0处理
+        if (cell.getCachedFormulaResultTypeEnum() == CellType.NUMERIC) {
+            return cell.getNumericCellValue();
+        }
+        return 0;
+    }
+
+    @Override
+    void addErrorRecordRow(OfficeIoResult result, Integer index) {
+        result.addErrorRecordRow(index, ErrorRow.of(row, columnStrings));
+    }
+
+    /**
+     * 在读取线程中复制单元格类型、文本、数字与公式结果，公式只计算需要结果的列；
+     * 计算时的异常在取公式结果时抛出
+     *
+     * @param formulaColumns 需要公式结果的列
+     * @return the sheet row
+     */
+    @Override
+    SheetRow snapshot(boolean[] formulaColumns) {
+        ValueSheetRow snapshot = new ValueSheetRow(getSheetName(), getRowNum(), columnStrings, true);
+        for (Cell cell : row) {
+            int columnIndex = cell.getColumnIndex();
+            CellType cellType = cell.getCellTypeEnum();
+            switch (cellType) {
+                case NUMERIC:
+                    if (isNumber(columnIndex)) {
+                        snapshot.setNumberCell(columnIndex, cell.getNumericCellValue());
+                    } else {
+                        snapshot.setCell(columnIndex, cellType, getCellText(columnIndex), null);
+                        snapshot.setCellValue(columnIndex, cell.getNumericCellValue());
+                    }
+                    break;
+                case BOOLEAN:
+                    snapshot.setCell(columnIndex, cellType, getCellText(columnIndex), null);
+                    snapshot.setCellValue(columnIndex, cell.getBooleanCellValue() ? 1 : 0);
+                    break;
+                case ERROR:
+                    snapshot.setCell(columnIndex, cellType, null, null);
+                    snapshot.setCellValue(columnIndex, cell.getErrorCellValue());
+                    break;
+                case FORMULA:
+                    String formulaValue = null;
+                    RuntimeException formulaError = null;
+                    if (columnIndex < formulaColumns.length && formulaColumns[columnIndex]) {
+                        try {
+                            formulaValue = String.valueOf(getFormulaNumberValue(columnIndex));
+                        } catch (RuntimeException e) {
+                            formulaError = e;
+                        }
+                    }
+                    snapshot.setCell(columnIndex, cellType, getCellText(columnIndex), formulaValue);
+                    if (formulaError != null) {
+                        snapshot.setFormulaError(columnIndex, formulaError);
+                    }
+                    break;
+                default:
+                    snapshot.setCell(columnIndex, cellType, getCellText(columnIndex), null);
+                    break;
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jin.commons.poi;
+
+/**
+ * 导入行处理
+ *
+ * @param <T> the type parameter
+ * @author wujinglei
+ * @ClassName: RowHandler
+ * @Description: 导入时每读取成功一行即交给调用方处理，不再放入importList
+ */
+public interface RowHandler<T> {
+
+    /**
+     * 处理一行导入数据，抛出异常时该行记为出错行；
+     * 设置了多sheet并行读取时，不同sheet的行会在不同线程中同时调用
+     *
+     * @param sheetIndex the sheet index
+     * @param rowNum     the row num(从0开始)
+     * @param rowData    the row data
+     */
+    void handle(int sheetIndex, int rowNum, T rowData);
+}
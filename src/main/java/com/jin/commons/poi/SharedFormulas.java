@@ -0,0 +1,259 @@
+package com.jin.commons.poi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式读取时的共享公式
+ *
+ * @author wujinglei
+ * @ClassName: SharedFormulas
+ * @Description: 共享公式只在首个单元格中保存公式文本，其他单元格只有共享序号(si)；
+ * 按所在单元格与首个单元格的行列差移动公式中的相对引用，得到与工作簿读取一致的公式
+ */
+final class SharedFormulas {
+
+    /**
+     * Excel的最大行数
+     */
+    private static final int MAX_ROWS = 1048576;
+
+    /**
+     * Excel的最大列数(XFD)
+     */
+    private static final int MAX_COLUMNS = 16384;
+
+    private final Map<String, Master> masters = new HashMap<String, Master>();
+
+    /**
+     * 记录共享公式的首个单元格
+     *
+     * @param sharedIndex the shared index
+     * @param formula     the formula
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     */
+    void addMaster(String sharedIndex, String formula, int rowIndex, int columnIndex) {
+        masters.put(sharedIndex, new Master(formula, rowIndex, columnIndex));
+    }
+
+    /**
+     * 取得共享公式在指定单元格中的公式
+     *
+     * @param sharedIndex the shared index
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @return 找不到首个单元格时返回null
+     */
+    String getFormula(String sharedIndex, int rowIndex, int columnIndex) {
+        Master master = masters.get(sharedIndex);
+        if (master == null) {
+            return null;
+        }
+        return shift(master.formula, rowIndex - master.rowIndex, columnIndex - master.columnIndex);
+    }
+
+    /**
+     * 移动公式中的相对引用，带$的行、列不移动；移出工作表范围的引用为#REF!
+     *
+     * @param formula      the formula
+     * @param rowOffset    the row offset
+     * @param columnOffset the column offset
+     * @return the string
+     */
+    static String shift(String formula, int rowOffset, int columnOffset) {
+        if (rowOffset == 0 && columnOffset == 0) {
+            return formula;
+        }
+        StringBuilder result = new StringBuilder(formula.length() + 8);
+        int length = formula.length();
+        int i = 0;
+        while (i < length) {
+            char c = formula.charAt(i);
+            if (c == '"' || c == '\'') {
+                // 文本与带引号的sheet名称原样保留
+                int end = skipQuoted(formula, i, c);
+                result.append(formula, i, end);
+                i = end;
+            } else if (c == '[') {
+                int end = formula.indexOf(']', i);
+                end = end < 0 ? length : end + 1;
+                result.append(formula, i, end);
+                i = end;
+            } else if (isTokenChar(c) && (i == 0 || !isTokenChar(formula.charAt(i - 1)))) {
+                int end = tokenEnd(formula, i);
+                String token = formula.substring(i, end);
+                char next = end < length ? formula.charAt(end) : 0;
+                if (next == '(' || next == '!') {
+                    // 函数名、sheet名
+                    result.append(token);
+                    i = end;
+                } else if (isCellReference(token)) {
+                    result.append(shiftCell(token, rowOffset, columnOffset));
+                    i = end;
+                } else if (next == ':' && end + 1 < length && isTokenChar(formula.charAt(end + 1))) {
+                    // 整列(A:B)、整行(1:2)的范围
+                    int rangeEnd = tokenEnd(formula, end + 1);
+                    String second = formula.substring(end + 1, rangeEnd);
+                    char after = rangeEnd < length ? formula.charAt(rangeEnd) : 0;
+                    if (after != '(' && after != '!' && isColumnReference(token) && isColumnReference(second)) {
+                        result.append(shiftColumn(token, columnOffset)).append(':').append(shiftColumn(second, columnOffset));
+                        i = rangeEnd;
+                    } else if (after != '(' && after != '!' && isRowReference(token) && isRowReference(second)) {
+                        result.append(shiftRow(token, rowOffset)).append(':').append(shiftRow(second, rowOffset));
+                        i = rangeEnd;
+                    } else {
+                        result.append(token);
+                        i = end;
+                    }
+                } else {
+                    result.append(token);
+                    i = end;
+                }
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    private static int skipQuoted(String formula, int start, char quote) {
+        int i = start + 1;
+        while (i < formula.length()) {
+            if (formula.charAt(i) == quote) {
+                // 连续两个引号为转义
+                if (i + 1 < formula.length() && formula.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return formula.length();
+    }
+
+    private static boolean isTokenChar(char c) {
+        return c == '$' || c == '_' || c == '.' || c == '\\' || Character.isLetterOrDigit(c);
+    }
+
+    private static int tokenEnd(String formula, int start) {
+        int end = start;
+        while (end < formula.length() && isTokenChar(formula.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isCellReference(String token) {
+        int i = skipDollar(token, 0);
+        int letters = countLetters(token, i);
+        if (letters == 0 || letters > 3) {
+            return false;
+        }
+        i = skipDollar(token, i + letters);
+        return i < token.length() && isDigits(token, i) && columnNumber(token, skipDollar(token, 0), letters) <= MAX_COLUMNS;
+    }
+
+    private static boolean isColumnReference(String token) {
+        int i = skipDollar(token, 0);
+        int letters = countLetters(token, i);
+        return letters > 0 && letters <= 3 && i + letters == token.length() && columnNumber(token, i, letters) <= MAX_COLUMNS;
+    }
+
+    private static boolean isRowReference(String token) {
+        int i = skipDollar(token, 0);
+        return i < token.length() && isDigits(token, i);
+    }
+
+    private static String shiftCell(String token, int rowOffset, int columnOffset) {
+        int i = skipDollar(token, 0);
+        int letters = countLetters(token, i);
+        int rowStart = i + letters;
+        String column = shiftColumn(token.substring(0, rowStart), columnOffset);
+        String row = shiftRow(token.substring(rowStart), rowOffset);
+        if (column == null || row == null) {
+            return "#REF!";
+        }
+        return column + row;
+    }
+
+    private static String shiftColumn(String token, int columnOffset) {
+        if (token.charAt(0) == '$') {
+            return token;
+        }
+        int column = columnNumber(token, 0, token.length()) + columnOffset;
+        if (column < 1 || column > MAX_COLUMNS) {
+            return null;
+        }
+        StringBuilder letters = new StringBuilder(3);
+        while (column > 0) {
+            int remainder = (column - 1) % 26;
+            letters.insert(0, (char) ('A' + remainder));
+            column = (column - 1) / 26;
+        }
+        return letters.toString();
+    }
+
+    private static String shiftRow(String token, int rowOffset) {
+        if (token.charAt(0) == '$') {
+            return token;
+        }
+        int row = Integer.parseInt(token) + rowOffset;
+        if (row < 1 || row > MAX_ROWS) {
+            return null;
+        }
+        return String.valueOf(row);
+    }
+
+    private static int skipDollar(String token, int i) {
+        return i < token.length() && token.charAt(i) == '$' ? i + 1 : i;
+    }
+
+    private static int countLetters(String token, int start) {
+        int i = start;
+        while (i < token.length() && ((token.charAt(i) >= 'A' && token.charAt(i) <= 'Z') || (token.charAt(i) >= 'a' && token.charAt(i) <= 'z'))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private static boolean isDigits(String token, int start) {
+        if (start >= token.length() || token.length() - start > 7) {
+            return false;
+        }
+        for (int i = start; i < token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int columnNumber(String token, int start, int letters) {
+        int column = 0;
+        for (int i = start; i < start + letters; i++) {
+            column = column * 26 + (Character.toUpperCase(token.charAt(i)) - 'A' + 1);
+        }
+        return column;
+    }
+
+    /**
+     * 共享公式的首个单元格
+     */
+    private static final class Master {
+
+        private final String formula;
+
+        private final int rowIndex;
+
+        private final int columnIndex;
+
+        Master(String formula, int rowIndex, int columnIndex) {
+            this.formula = formula;
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+        }
+    }
+}
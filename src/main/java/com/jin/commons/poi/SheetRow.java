@@ -0,0 +1,102 @@
+package com.jin.commons.poi;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellAddress;
+
+/**
+ * 导入时读取的行数据
+ *
+ * @author wujinglei
+ * @ClassName: SheetRow
+ * @Description: 屏蔽工作簿(POI Row)与流式读取(SAX)之间的差异
+ */
+abstract class SheetRow {
+
+    /**
+     * 所在sheet名称
+     *
+     * @return the sheet name
+     */
+    abstract String getSheetName();
+
+    /**
+     * 行号(从0开始)
+     *
+     * @return the row num
+     */
+    abstract int getRowNum();
+
+    /**
+     * 指定列是否有单元格
+     *
+     * @param columnIndex the column index
+     * @return the boolean
+     */
+    abstract boolean hasCell(int columnIndex);
+
+    /**
+     * 单元格类型
+     *
+     * @param columnIndex the column index
+     * @return the cell type
+     */
+    abstract CellType getCellType(int columnIndex);
+
+    /**
+     * 单元格文本内容，数字已处理科学计数法，日期格式化为yyyy-MM-dd，公式为公式本身
+     *
+     * @param columnIndex the column index
+     * @return the cell text
+     */
+    abstract String getCellText(int columnIndex);
+
+    /**
+     * 是否是数字单元格(不含日期格式)
+     *
+     * @param columnIndex the column index
+     * @return the boolean
+     */
+    abstract boolean isNumber(int columnIndex);
+
+    /**
+     * 数字单元格的值
+     *
+     * @param columnIndex the column index
+     * @return the number
+     */
+    abstract double getNumber(int columnIndex);
+
+    /**
+     * 公式单元格的数字结果
+     *
+     * @param columnIndex the column index
+     * @return the formula number value
+     */
+    abstract double getFormulaNumberValue(int columnIndex);
+
+    /**
+     * 将当前行放入errorRecordRow中
+     *
+     * @param result the result
+     * @param index  the index
+     */
+    abstract void addErrorRecordRow(OfficeIoResult result, Integer index);
+
+    /**
+     * 交给线程池转换前，在读取线程中生成不再访问工作簿的快照
+     *
+     * @param formulaColumns 需要公式结果的列，在读取线程中计算
+     * @return the sheet row
+     */
+    abstract SheetRow snapshot(boolean[] formulaColumns);
+
+    /**
+     * 单元格坐标
+     *
+     * @param columnIndex the column index
+     * @return the address
+     */
+    String getAddress(int columnIndex) {
+        return new CellAddress(getRowNum(), columnIndex).formatAsString();
+    }
+}
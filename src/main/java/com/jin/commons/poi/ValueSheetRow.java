@@ -0,0 +1,217 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.utils.CellDataConverter;
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.util.Arrays;
+
+/**
+ * 流式读取的行数据
+ *
+ * @author wujinglei
+ * @ClassName: ValueSheetRow
+ * @Description: 只保存单元格类型与文本内容，不持有工作簿；也用作工作簿中行的快照，在线程池中转换
+ */
+final class ValueSheetRow extends SheetRow {
+
+    private final String sheetName;
+
+    private final int rowNum;
+
+    private CellType[] cellTypes = new CellType[16];
+
+    private String[] cellTexts = new String[16];
+
+    /**
+     * 公式单元格缓存的计算结果
+     */
+    private String[] formulaValues = new String[16];
+
+    /**
+     * 数字单元格(不含日期格式)的值，文本在读取时才生成；
+     * 快照中还保存日期单元格的数字、布尔单元格的值(1/0)、错误单元格的错误码
+     */
+    private double[] numbers = new double[16];
+
+    private boolean[] numberCells = new boolean[16];
+
+    /**
+     * 快照中公式计算时的异常，取公式结果时抛出
+     */
+    private RuntimeException[] formulaErrors;
+
+    private int cellCount = 0;
+
+    /**
+     * 出错行文本按列共用，为空时不共用
+     */
+    private final ColumnStrings columnStrings;
+
+    /**
+     * 出错行是否按单元格类型保存(ErrorRow)，否则只保存文本
+     */
+    private final boolean typedErrorRow;
+
+    ValueSheetRow(String sheetName, int rowNum, ColumnStrings columnStrings) {
+        this(sheetName, rowNum, columnStrings, false);
+    }
+
+    ValueSheetRow(String sheetName, int rowNum, ColumnStrings columnStrings, boolean typedErrorRow) {
+        this.sheetName = sheetName;
+        this.rowNum = rowNum;
+        this.columnStrings = columnStrings;
+        this.typedErrorRow = typedErrorRow;
+    }
+
+    /**
+     * 设置单元格内容
+     *
+     * @param columnIndex  the column index
+     * @param cellType     the cell type
+     * @param cellText     the cell text
+     * @param formulaValue the formula value
+     */
+    void setCell(int columnIndex, CellType cellType, String cellText, String formulaValue) {
+        if (columnIndex >= cellTypes.length) {
+            int length = Math.max(columnIndex + 1, cellTypes.length * 2);
+            cellTypes = Arrays.copyOf(cellTypes, length);
+            cellTexts = Arrays.copyOf(cellTexts, length);
+            formulaValues = Arrays.copyOf(formulaValues, length);
+            numbers = Arrays.copyOf(numbers, length);
+            numberCells = Arrays.copyOf(numberCells, length);
+        }
+        cellTypes[columnIndex] = cellType;
+        cellTexts[columnIndex] = cellText;
+        formulaValues[columnIndex] = formulaValue;
+        numberCells[columnIndex] = false;
+        cellCount = Math.max(cellCount, columnIndex + 1);
+    }
+
+    /**
+     * 设置数字单元格
+     *
+     * @param columnIndex the column index
+     * @param number      the number
+     */
+    void setNumberCell(int columnIndex, double number) {
+        setCell(columnIndex, CellType.NUMERIC, null, null);
+        numbers[columnIndex] = number;
+        numberCells[columnIndex] = true;
+    }
+
+    /**
+     * 设置单元格的数字值(日期、布尔、错误单元格)，出错行按单元格类型保存时使用
+     *
+     * @param columnIndex the column index
+     * @param value       the value
+     */
+    void setCellValue(int columnIndex, double value) {
+        numbers[columnIndex] = value;
+    }
+
+    /**
+     * 设置公式计算时的异常
+     *
+     * @param columnIndex the column index
+     * @param e           the e
+     */
+    void setFormulaError(int columnIndex, RuntimeException e) {
+        if (formulaErrors == null || columnIndex >= formulaErrors.length) {
+            formulaErrors = formulaErrors == null ? new RuntimeException[cellTypes.length] : Arrays.copyOf(formulaErrors, cellTypes.length);
+        }
+        formulaErrors[columnIndex] = e;
+    }
+
+    /**
+     * 列数(最后一个单元格的列序号+1)
+     *
+     * @return the cell count
+     */
+    int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * 单元格的数字值
+     *
+     * @param columnIndex the column index
+     * @return the cell value
+     */
+    double getCellValue(int columnIndex) {
+        return numbers[columnIndex];
+    }
+
+    @Override
+    String getSheetName() {
+        return sheetName;
+    }
+
+    @Override
+    int getRowNum() {
+        return rowNum;
+    }
+
+    @Override
+    boolean hasCell(int columnIndex) {
+        return columnIndex < cellCount && cellTypes[columnIndex] != null;
+    }
+
+    @Override
+    CellType getCellType(int columnIndex) {
+        return cellTypes[columnIndex];
+    }
+
+    @Override
+    String getCellText(int columnIndex) {
+        if (numberCells[columnIndex] && cellTexts[columnIndex] == null) {
+            cellTexts[columnIndex] = CellDataConverter.number2Str(numbers[columnIndex]);
+        }
+        return cellTexts[columnIndex];
+    }
+
+    @Override
+    boolean isNumber(int columnIndex) {
+        return numberCells[columnIndex];
+    }
+
+    @Override
+    double getNumber(int columnIndex) {
+        return numbers[columnIndex];
+    }
+
+    @Override
+    double getFormulaNumberValue(int columnIndex) {
+        if (formulaErrors != null && columnIndex < formulaErrors.length && formulaErrors[columnIndex] != null) {
+            throw formulaErrors[columnIndex];
+        }
+        String formulaValue = formulaValues[columnIndex];
+        if (formulaValue == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(formulaValue);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    void addErrorRecordRow(OfficeIoResult result, Integer index) {
+        if (typedErrorRow) {
+            result.addErrorRecordRow(index, ErrorRow.of(this, columnStrings));
+            return;
+        }
+        String[] texts = new String[cellCount];
+        for (int columnIndex = 0; columnIndex < cellCount; columnIndex++) {
+            if (cellTypes[columnIndex] != null) {
+                texts[columnIndex] = ColumnStrings.intern(columnStrings, columnIndex, getCellText(columnIndex));
+            }
+        }
+        result.addErrorRecordRow(index, texts);
+    }
+
+    @Override
+    SheetRow snapshot(boolean[] formulaColumns) {
+        return this;
+    }
+}
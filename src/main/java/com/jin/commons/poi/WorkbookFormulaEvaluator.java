@@ -0,0 +1,37 @@
+package com.jin.commons.poi;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * 导入时的公式计算
+ *
+ * @author wujinglei
+ * @ClassName: WorkbookFormulaEvaluator
+ * @Description: 共用FormulaEvaluator，已计算的结果在各单元格、各sheet间复用；
+ * FormulaEvaluator不是线程安全的，只在读取线程中使用，并行读取sheet时每个sheet使用自己的实例
+ */
+final class WorkbookFormulaEvaluator {
+
+    private final Workbook workbook;
+
+    private FormulaEvaluator evaluator;
+
+    WorkbookFormulaEvaluator(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /**
+     * 计算公式单元格的数字结果
+     *
+     * @param cell the cell
+     * @return the double
+     */
+    double evaluateNumber(Cell cell) {
+        if (evaluator == null) {
+            evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        }
+        return evaluator.evaluate(cell).getNumberValue();
+    }
+}
@@ -0,0 +1,266 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.DatePattern;
+import com.jin.commons.poi.utils.CellDataConverter;
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * sheet XML的SAX解析
+ *
+ * @author wujinglei
+ * @ClassName: XlsxSheetHandler
+ * @Description: 逐行解析sheet，每读完一行交给RowListener处理，不保留已处理的行
+ */
+final class XlsxSheetHandler extends DefaultHandler {
+
+    /**
+     * 行数据处理
+     */
+    interface RowListener {
+
+        /**
+         * 处理一行数据
+         *
+         * @param row the row
+         * @return 返回false时停止读取本sheet剩余的行
+         */
+        boolean onRow(SheetRow row);
+    }
+
+    /**
+     * RowListener要求停止读取时中止解析
+     */
+    static final class StopReadingException extends SAXException {
+
+        StopReadingException() {
+            super("stop reading sheet");
+        }
+    }
+
+    private final String sheetName;
+
+    private final ReadOnlySharedStringsTable sharedStrings;
+
+    private final StylesTable stylesTable;
+
+    private final RowListener rowListener;
+
+    /**
+     * 出错行文本按列共用
+     */
+    private final ColumnStrings columnStrings = new ColumnStrings();
+
+    /**
+     * 样式是否为日期格式
+     */
+    private final Map<Integer, Boolean> dateStyleMap = new HashMap<Integer, Boolean>();
+
+    /**
+     * 本sheet的共享公式
+     */
+    private final SharedFormulas sharedFormulas = new SharedFormulas();
+
+    private final StringBuilder valueText = new StringBuilder();
+
+    private final StringBuilder formulaText = new StringBuilder();
+
+    private final StringBuilder inlineText = new StringBuilder();
+
+    private ValueSheetRow currentRow;
+
+    private int rowNum = -1;
+
+    private int columnIndex = -1;
+
+    private String cellKind;
+
+    private int styleIndex;
+
+    /**
+     * 共享公式的序号，不是共享公式时为null
+     */
+    private String sharedIndex;
+
+    private boolean hasValue;
+
+    private boolean hasFormula;
+
+    private boolean inValue;
+
+    private boolean inFormula;
+
+    private boolean inInlineString;
+
+    private boolean inInlineText;
+
+    XlsxSheetHandler(String sheetName, ReadOnlySharedStringsTable sharedStrings, StylesTable stylesTable, RowListener rowListener) {
+        this.sheetName = sheetName;
+        this.sharedStrings = sharedStrings;
+        this.stylesTable = stylesTable;
+        this.rowListener = rowListener;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        if ("row".equals(localName)) {
+            String rowRef = attributes.getValue("r");
+            rowNum = rowRef != null ? Integer.parseInt(rowRef) - 1 : rowNum + 1;
+            columnIndex = -1;
+            currentRow = new ValueSheetRow(sheetName, rowNum, columnStrings);
+        } else if ("c".equals(localName)) {
+            String cellRef = attributes.getValue("r");
+            columnIndex = cellRef != null ? getColumnIndex(cellRef) : columnIndex + 1;
+            cellKind = attributes.getValue("t");
+            String style = attributes.getValue("s");
+            styleIndex = style != null ? Integer.parseInt(style) : 0;
+            hasValue = false;
+            hasFormula = false;
+            sharedIndex = null;
+            valueText.setLength(0);
+            formulaText.setLength(0);
+            inlineText.setLength(0);
+        } else if ("v".equals(localName)) {
+            inValue = true;
+            hasValue = true;
+        } else if ("f".equals(localName)) {
+            inFormula = true;
+            hasFormula = true;
+            if ("shared".equals(attributes.getValue("t"))) {
+                sharedIndex = attributes.getValue("si");
+            }
+        } else if ("is".equals(localName)) {
+            inInlineString = true;
+        } else if ("t".equals(localName) && inInlineString) {
+            inInlineText = true;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if ("v".equals(localName)) {
+            inValue = false;
+        } else if ("f".equals(localName)) {
+            inFormula = false;
+        } else if ("t".equals(localName)) {
+            inInlineText = false;
+        } else if ("is".equals(localName)) {
+            inInlineString = false;
+        } else if ("c".equals(localName)) {
+            endCell();
+        } else if ("row".equals(localName)) {
+            SheetRow row = currentRow;
+            currentRow = null;
+            if (!rowListener.onRow(row)) {
+                throw new StopReadingException();
+            }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (inValue) {
+            valueText.append(ch, start, length);
+        } else if (inFormula) {
+            formulaText.append(ch, start, length);
+        } else if (inInlineText) {
+            inlineText.append(ch, start, length);
+        }
+    }
+
+    /**
+     * 按单元格类型生成与工作簿读取一致的文本内容
+     */
+    private void endCell() {
+        if (currentRow == null) {
+            return;
+        }
+        String value = hasValue ? valueText.toString() : null;
+        if (hasFormula) {
+            currentRow.setCell(columnIndex, CellType.FORMULA, getFormula(), value);
+        } else if ("inlineStr".equals(cellKind)) {
+            currentRow.setCell(columnIndex, CellType.STRING, inlineText.toString(), null);
+        } else if (value == null) {
+            currentRow.setCell(columnIndex, CellType.BLANK, null, null);
+        } else if ("s".equals(cellKind)) {
+            currentRow.setCell(columnIndex, CellType.STRING, sharedStrings.getEntryAt(Integer.parseInt(value)), null);
+        } else if ("str".equals(cellKind)) {
+            currentRow.setCell(columnIndex, CellType.STRING, value, null);
+        } else if ("b".equals(cellKind)) {
+            currentRow.setCell(columnIndex, CellType.BOOLEAN, String.valueOf("1".equals(value)), null);
+        } else if ("e".equals(cellKind)) {
+            currentRow.setCell(columnIndex, CellType.ERROR, null, null);
+        } else {
+            setNumericCell(value);
+        }
+    }
+
+    /**
+     * 公式单元格的公式，共享公式的其他单元格由首个单元格的公式移动引用得出
+     *
+     * @return the formula
+     */
+    private String getFormula() {
+        String formula = formulaText.toString();
+        if (sharedIndex == null) {
+            return formula;
+        }
+        if (formula.length() > 0) {
+            sharedFormulas.addMaster(sharedIndex, formula, rowNum, columnIndex);
+            return formula;
+        }
+        String sharedFormula = sharedFormulas.getFormula(sharedIndex, rowNum, columnIndex);
+        return sharedFormula != null ? sharedFormula : formula;
+    }
+
+    /**
+     * 数字单元格，日期格式的单元格转为yyyy-MM-dd，其他的保存数字
+     *
+     * @param value the value
+     */
+    private void setNumericCell(String value) {
+        double number = Double.parseDouble(value);
+        if (HSSFDateUtil.isValidExcelDate(number) && isDateStyle(styleIndex)) {
+            currentRow.setCell(columnIndex, CellType.NUMERIC, CellDataConverter.date2Str(HSSFDateUtil.getJavaDate(number), DatePattern.DATE_FORMAT_DAY.getValue()), null);
+        } else {
+            currentRow.setNumberCell(columnIndex, number);
+        }
+    }
+
+    private boolean isDateStyle(int styleIndex) {
+        Boolean dateStyle = dateStyleMap.get(styleIndex);
+        if (dateStyle == null) {
+            XSSFCellStyle style = stylesTable != null && styleIndex < stylesTable.getNumCellStyles() ? stylesTable.getStyleAt(styleIndex) : null;
+            dateStyle = style != null && HSSFDateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            dateStyleMap.put(styleIndex, dateStyle);
+        }
+        return dateStyle;
+    }
+
+    /**
+     * 由单元格坐标(如AB12)取得列序号
+     *
+     * @param cellRef the cell ref
+     * @return the column index
+     */
+    private static int getColumnIndex(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char ch = cellRef.charAt(i);
+            if (ch < 'A' || ch > 'Z') {
+                break;
+            }
+            column = column * 26 + (ch - 'A' + 1);
+        }
+        return column - 1;
+    }
+}
@@ -0,0 +1,117 @@
+package com.jin.commons.poi;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTDefinedName;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * XLSX流式读取
+ *
+ * @author wujinglei
+ * @ClassName: XlsxStreamReader
+ * @Description: 基于XSSFReader按sheet逐行读取，不构建工作簿
+ */
+final class XlsxStreamReader {
+
+    private final XSSFReader xssfReader;
+
+    private final ReadOnlySharedStringsTable sharedStrings;
+
+    private final StylesTable stylesTable;
+
+    private final CTWorkbook ctWorkbook;
+
+    XlsxStreamReader(OPCPackage opcPackage) throws IOException, OpenXML4JException, SAXException, XmlException {
+        this.xssfReader = new XSSFReader(opcPackage);
+        this.sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+        this.stylesTable = xssfReader.getStylesTable();
+        InputStream workbookData = xssfReader.getWorkbookData();
+        try {
+            this.ctWorkbook = WorkbookDocument.Factory.parse(workbookData).getWorkbook();
+        } finally {
+            workbookData.close();
+        }
+    }
+
+    /**
+     * sheet数量
+     *
+     * @return the number of sheets
+     */
+    int getNumberOfSheets() {
+        return ctWorkbook.getSheets().sizeOfSheetArray();
+    }
+
+    /**
+     * 按名称取得sheet序号
+     *
+     * @param sheetName the sheet name
+     * @return the sheet index, 找不到时返回-1
+     */
+    int getSheetIndex(String sheetName) {
+        CTSheet[] sheets = ctWorkbook.getSheets().getSheetArray();
+        for (int i = 0; i < sheets.length; i++) {
+            if (sheets[i].getName().equalsIgnoreCase(sheetName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 工作簿中定义的名称
+     *
+     * @return 名称与引用公式
+     */
+    Map<String, String> getDefinedNames() {
+        Map<String, String> names = new LinkedHashMap<String, String>();
+        if (ctWorkbook.getDefinedNames() != null) {
+            for (CTDefinedName definedName : ctWorkbook.getDefinedNames().getDefinedNameArray()) {
+                names.put(definedName.getName(), definedName.getStringValue());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 逐行读取sheet，RowListener返回false时停止
+     *
+     * @param sheetIndex  the sheet index
+     * @param rowListener the row listener
+     * @throws IOException                  the io exception
+     * @throws InvalidFormatException       the invalid format exception
+     * @throws SAXException                 the sax exception
+     * @throws ParserConfigurationException the parser configuration exception
+     */
+    void readSheet(int sheetIndex, XlsxSheetHandler.RowListener rowListener) throws IOException, InvalidFormatException, SAXException, ParserConfigurationException {
+        CTSheet ctSheet = ctWorkbook.getSheets().getSheetArray(sheetIndex);
+        InputStream sheetData = xssfReader.getSheet(ctSheet.getId());
+        try {
+            XMLReader xmlReader = SAXHelper.newXMLReader();
+            xmlReader.setContentHandler(new XlsxSheetHandler(ctSheet.getName(), sharedStrings, stylesTable, rowListener));
+            xmlReader.parse(new InputSource(sheetData));
+        } catch (XlsxSheetHandler.StopReadingException e) {
+            // 由RowListener停止
+        } finally {
+            sheetData.close();
+        }
+    }
+}
@@ -35,6 +35,11 @@ public final class CellSettings {
 	 */
 	private Object cellRuleValue;
 
+	/**
+	 * 自定义校验
+	 */
+	private CellValidator[] cellValidators;
+
 	/**
 	 * 公式设置
 	 */
@@ -252,6 +257,31 @@ public final class CellSettings {
 		return this;
 	}
 
+	/**
+	 * Add cell validator cell settings.
+	 *
+	 * @param cellValidator the cell validator
+	 * @return cell settings
+	 * @Description: 添加自定义校验，可添加多个，在CellRule之后按添加顺序执行
+	 */
+	public CellSettings addCellValidator(CellValidator cellValidator) {
+		if (this.cellValidators == null){
+			this.cellValidators = new CellValidator[]{cellValidator};
+		}else{
+			this.cellValidators = ArrayUtils.add(this.cellValidators, cellValidator);
+		}
+		return this;
+	}
+
+	/**
+	 * Get cell validators cell validator [ ].
+	 *
+	 * @return the cellValidators
+	 */
+	public CellValidator[] getCellValidators() {
+		return cellValidators;
+	}
+
 	/**
 	 * Add fixed map cell settings.
 	 *
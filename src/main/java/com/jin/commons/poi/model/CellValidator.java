@@ -0,0 +1,19 @@
+package com.jin.commons.poi.model;
+
+/**
+ * 单元格校验
+ *
+ * @author wujinglei
+ * @ClassName: CellValidator
+ * @Description: 导入时对按列类型转换后的值进行校验，在CellRule之后按添加顺序执行，不通过时记录出错并跳过行
+ */
+public interface CellValidator {
+
+    /**
+     * 校验一个单元格的值；并行读取时会在多个线程中同时调用
+     *
+     * @param value 按列类型转换后的值，可能为null
+     * @return 不通过时返回出错信息，通过时返回null
+     */
+    String validate(Object value);
+}
@@ -0,0 +1,200 @@
+package com.jin.commons.poi.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The type Export settings.
+ *
+ * @author wujinglei
+ * @ClassName: ExportSettings
+ * @Description: 导出配置
+ */
+public final class ExportSettings {
+
+    /**
+     * 是否使用流式写入(SXSSF)，超出窗口的行写入临时文件
+     */
+    private Boolean streaming = false;
+
+    /**
+     * 流式写入时内存中保留的行数
+     */
+    private Integer rowAccessWindow = 100;
+
+    /**
+     * 流式写入时是否压缩临时文件
+     */
+    private Boolean compressTempFiles = false;
+
+    /**
+     * 分页导出时预取的页数
+     */
+    private Integer prefetchPages = 1;
+
+    /**
+     * 分页导出的预取线程池，为空时每个sheet使用单独的后台线程
+     */
+    private ExecutorService prefetchExecutor;
+
+    /**
+     * 多sheet并行写入的线程池，为空时按顺序写入
+     */
+    private ExecutorService sheetExecutor;
+
+    /**
+     * 数据行取值的线程池，为空时在写入线程中取值
+     */
+    private ForkJoinPool rowPool;
+
+    /**
+     * Instantiates a new Export settings.
+     */
+    public ExportSettings(){
+
+    }
+
+    /**
+     * 使用流式写入，内存中只保留最近的rowAccessWindow行，内存占用与行数无关；
+     * 结果需通过OfficeIoResult.write写出，写出后临时文件即被删除
+     *
+     * @return the export settings
+     */
+    public ExportSettings streaming(){
+        this.streaming = true;
+        return this;
+    }
+
+    /**
+     * Is streaming boolean.
+     *
+     * @return the boolean
+     */
+    public Boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 流式写入时内存中保留的行数，不足表头行数时按表头行数处理
+     *
+     * @param rowAccessWindow the row access window
+     * @return the export settings
+     */
+    public ExportSettings addRowAccessWindow(Integer rowAccessWindow){
+        this.rowAccessWindow = rowAccessWindow;
+        return this;
+    }
+
+    /**
+     * Gets row access window.
+     *
+     * @return the row access window
+     */
+    public Integer getRowAccessWindow() {
+        return rowAccessWindow;
+    }
+
+    /**
+     * 流式写入时压缩临时文件，占用磁盘更少但写入更慢
+     *
+     * @return the export settings
+     */
+    public ExportSettings compressTempFiles(){
+        this.compressTempFiles = true;
+        return this;
+    }
+
+    /**
+     * Is compress temp files boolean.
+     *
+     * @return the boolean
+     */
+    public Boolean isCompressTempFiles() {
+        return compressTempFiles;
+    }
+
+    /**
+     * 分页导出时，写入当前页的同时在后台预取之后的prefetchPages页；
+     * 内存中最多保留prefetchPages + 1页，为0时不预取
+     *
+     * @param prefetchPages the prefetch pages
+     * @return the export settings
+     */
+    public ExportSettings addPrefetchPages(Integer prefetchPages){
+        this.prefetchPages = prefetchPages;
+        return this;
+    }
+
+    /**
+     * Gets prefetch pages.
+     *
+     * @return the prefetch pages
+     */
+    public Integer getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    /**
+     * 分页导出的预取在此线程池中执行，为多线程时之后的各页会同时取得
+     *
+     * @param prefetchExecutor the prefetch executor
+     * @return the export settings
+     */
+    public ExportSettings addPrefetchExecutor(ExecutorService prefetchExecutor){
+        this.prefetchExecutor = prefetchExecutor;
+        return this;
+    }
+
+    /**
+     * Gets prefetch executor.
+     *
+     * @return the prefetch executor
+     */
+    public ExecutorService getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * 流式写入时，各sheet的数据行在线程池中并行写入，结果与错误按sheet顺序合并；
+     * 各sheet写入同一个SXSSFWorkbook，不生成单独的sheet再合并，
+     * 所有sheet的标题、表头与数据列的样式在提交前按顺序创建，写入线程不修改样式表；
+     * 非流式写入时忽略此设置，共用的文本表不能并行写入，仍按顺序导出
+     *
+     * @param sheetExecutor the sheet executor
+     * @return the export settings
+     */
+    public ExportSettings addSheetExecutor(ExecutorService sheetExecutor){
+        this.sheetExecutor = sheetExecutor;
+        return this;
+    }
+
+    /**
+     * Gets sheet executor.
+     *
+     * @return the sheet executor
+     */
+    public ExecutorService getSheetExecutor() {
+        return sheetExecutor;
+    }
+
+    /**
+     * 数据行流水线写入：对象取值、固定值转换与日期格式化按行分组在线程池中并行执行，
+     * 写入线程只负责按行的顺序创建单元格，结果与错误仍按行的顺序记录
+     *
+     * @param rowPool the row pool
+     * @return the export settings
+     */
+    public ExportSettings addRowPool(ForkJoinPool rowPool){
+        this.rowPool = rowPool;
+        return this;
+    }
+
+    /**
+     * Gets row pool.
+     *
+     * @return the row pool
+     */
+    public ForkJoinPool getRowPool() {
+        return rowPool;
+    }
+}
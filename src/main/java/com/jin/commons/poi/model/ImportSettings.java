@@ -0,0 +1,247 @@
+package com.jin.commons.poi.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The type Import settings.
+ *
+ * @author wujinglei
+ * @ClassName: ImportSettings
+ * @Description: 导入配置
+ */
+public final class ImportSettings {
+
+    /**
+     * 是否使用流式读取(SAX)，不构建完整的工作簿
+     */
+    private Boolean streaming = false;
+
+    /**
+     * 是否直接使用文件中保存的公式结果，不重新计算
+     */
+    private Boolean cachedFormulaResult = false;
+
+    /**
+     * 批量导入时每批的条数
+     */
+    private Integer batchSize = 1000;
+
+    /**
+     * 批量导入时允许未写入完成的批数，超过时读取等待
+     */
+    private Integer maxInFlightBatches = 2;
+
+    /**
+     * 多sheet并行读取的线程池，为空时按顺序读取
+     */
+    private ExecutorService sheetExecutor;
+
+    /**
+     * 行数据转换的线程池，为空时在读取线程中转换
+     */
+    private ForkJoinPool rowPool;
+
+    /**
+     * 允许的最多出错行数，超过时停止读取；为空时不限制
+     */
+    private Integer maxErrorCount;
+
+    /**
+     * 允许的最大出错行比例(0~1)，超过时停止读取；为空时不限制
+     */
+    private Double maxErrorRatio;
+
+    /**
+     * 出现出错行时立即停止读取
+     */
+    private Boolean failFast = false;
+
+    /**
+     * Instantiates a new Import settings.
+     */
+    public ImportSettings(){
+
+    }
+
+    /**
+     * 使用流式读取，按行读取sheet数据，内存占用与文件大小无关
+     *
+     * @return the import settings
+     */
+    public ImportSettings streaming(){
+        this.streaming = true;
+        return this;
+    }
+
+    /**
+     * Is streaming boolean.
+     *
+     * @return the boolean
+     */
+    public Boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 公式列直接使用文件中保存的计算结果，不再计算公式；适用于由Excel保存的文件。
+     * 流式读取时始终使用保存的结果
+     *
+     * @return the import settings
+     */
+    public ImportSettings useCachedFormulaResult(){
+        this.cachedFormulaResult = true;
+        return this;
+    }
+
+    /**
+     * Is cached formula result boolean.
+     *
+     * @return the boolean
+     */
+    public Boolean isCachedFormulaResult() {
+        return cachedFormulaResult;
+    }
+
+    /**
+     * 批量导入时每批的条数
+     *
+     * @param batchSize the batch size
+     * @return the import settings
+     */
+    public ImportSettings addBatchSize(Integer batchSize){
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 批量导入时允许未写入完成的批数，超过时读取等待
+     *
+     * @param maxInFlightBatches the max in flight batches
+     * @return the import settings
+     */
+    public ImportSettings addMaxInFlightBatches(Integer maxInFlightBatches){
+        this.maxInFlightBatches = maxInFlightBatches;
+        return this;
+    }
+
+    /**
+     * Gets batch size.
+     *
+     * @return the batch size
+     */
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets max in flight batches.
+     *
+     * @return the max in flight batches
+     */
+    public Integer getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    /**
+     * 各sheet在线程池中并行读取，结果与错误仍按sheet顺序合并；
+     * 使用RowHandler时会在多个线程中被调用
+     *
+     * @param sheetExecutor the sheet executor
+     * @return the import settings
+     */
+    public ImportSettings addSheetExecutor(ExecutorService sheetExecutor){
+        this.sheetExecutor = sheetExecutor;
+        return this;
+    }
+
+    /**
+     * Gets sheet executor.
+     *
+     * @return the sheet executor
+     */
+    public ExecutorService getSheetExecutor() {
+        return sheetExecutor;
+    }
+
+    /**
+     * 行数据流水线处理：读取线程只负责逐行取出数据，类型转换、规则校验与赋值在线程池中并行执行，
+     * 结果与错误仍按行的顺序记录
+     *
+     * @param rowPool the row pool
+     * @return the import settings
+     */
+    public ImportSettings addRowPool(ForkJoinPool rowPool){
+        this.rowPool = rowPool;
+        return this;
+    }
+
+    /**
+     * Gets row pool.
+     *
+     * @return the row pool
+     */
+    public ForkJoinPool getRowPool() {
+        return rowPool;
+    }
+
+    /**
+     * 出错行数超过maxErrorCount时停止读取剩余的行与sheet，已读取的结果与出错记录保留，
+     * 结果标记为未完成并截断
+     *
+     * @param maxErrorCount the max error count
+     * @return the import settings
+     */
+    public ImportSettings addMaxErrorCount(Integer maxErrorCount){
+        this.maxErrorCount = maxErrorCount;
+        return this;
+    }
+
+    /**
+     * Gets max error count.
+     *
+     * @return the max error count
+     */
+    public Integer getMaxErrorCount() {
+        return maxErrorCount;
+    }
+
+    /**
+     * 出错行占已读取数据行的比例超过maxErrorRatio时停止读取；读取满100行后才开始按比例判断
+     *
+     * @param maxErrorRatio the max error ratio
+     * @return the import settings
+     */
+    public ImportSettings addMaxErrorRatio(Double maxErrorRatio){
+        this.maxErrorRatio = maxErrorRatio;
+        return this;
+    }
+
+    /**
+     * Gets max error ratio.
+     *
+     * @return the max error ratio
+     */
+    public Double getMaxErrorRatio() {
+        return maxErrorRatio;
+    }
+
+    /**
+     * 出现第一个出错行时即停止读取
+     *
+     * @return the import settings
+     */
+    public ImportSettings failFast(){
+        this.failFast = true;
+        return this;
+    }
+
+    /**
+     * Is fail fast boolean.
+     *
+     * @return the boolean
+     */
+    public Boolean isFailFast() {
+        return failFast;
+    }
+}
@@ -0,0 +1,25 @@
+package com.jin.commons.poi.model;
+
+import java.util.List;
+
+/**
+ * 分页导出数据源
+ *
+ * @param <T> the type parameter
+ * @author wujinglei
+ * @ClassName: PageSource
+ * @Description: 导出时按页取得数据(如分页查询)，写入当前页时在后台预取后续的页
+ */
+public interface PageSource<T> {
+
+    /**
+     * 取得一页数据，预取时在后台线程中按页号顺序调用，预取线程池为多线程时不同的页会同时调用；
+     * 返回null、空列表或不足pageSize条时视为最后一页
+     *
+     * @param pageNo   the page no(从1开始)
+     * @param pageSize the page size
+     * @return the list
+     * @throws Exception the exception
+     */
+    List<T> fetchPage(int pageNo, int pageSize) throws Exception;
+}
@@ -5,6 +5,8 @@ import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * The type Sheet settings.
@@ -41,6 +43,26 @@ public final class SheetSettings {
 	 */
 	private List exportData;
 
+	/**
+	 * 导出的数据源，导出时逐条取出，不保留已写入的数据；设置后优先于exportData
+	 */
+	private Iterator exportIterator;
+
+	/**
+	 * 数据源为Stream时，导出完成后关闭
+	 */
+	private Stream exportStream;
+
+	/**
+	 * 分页导出的数据源
+	 */
+	private PageSource exportPageSource;
+
+	/**
+	 * 分页导出时每页的条数
+	 */
+	private Integer exportPageSize;
+
 	/**
 	 * 数据class类型
 	 */
@@ -288,6 +310,131 @@ public final class SheetSettings {
 	 */
 	public void setExportData(List exportData) {
 		this.exportData = exportData;
+		this.exportIterator = null;
+		this.exportStream = null;
+		this.exportPageSource = null;
+	}
+
+	/**
+	 * 按迭代器导出，导出时逐条取出，只能导出一次
+	 *
+	 * @param exportIterator the export iterator
+	 * @return the sheet settings
+	 */
+	public SheetSettings addExportData(Iterator exportIterator){
+		this.exportData = null;
+		this.exportIterator = exportIterator;
+		this.exportStream = null;
+		this.exportPageSource = null;
+		return this;
+	}
+
+	/**
+	 * 按Stream导出，导出时逐条取出，导出完成后关闭Stream；只能导出一次
+	 *
+	 * @param exportStream the export stream
+	 * @return the sheet settings
+	 */
+	public SheetSettings addExportData(Stream exportStream){
+		this.exportData = null;
+		this.exportIterator = exportStream.iterator();
+		this.exportStream = exportStream;
+		this.exportPageSource = null;
+		return this;
+	}
+
+	/**
+	 * 按需取得数据导出，exportSupplier返回null时结束；只能导出一次
+	 *
+	 * @param exportSupplier the export supplier
+	 * @return the sheet settings
+	 */
+	public SheetSettings addExportData(final Supplier exportSupplier){
+		this.exportData = null;
+		this.exportIterator = new Iterator() {
+
+			private Object nextData;
+
+			private boolean fetched = false;
+
+			@Override
+			public boolean hasNext() {
+				if (!fetched) {
+					nextData = exportSupplier.get();
+					fetched = true;
+				}
+				return nextData != null;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Object data = nextData;
+				nextData = null;
+				fetched = false;
+				return data;
+			}
+		};
+		this.exportStream = null;
+		this.exportPageSource = null;
+		return this;
+	}
+
+	/**
+	 * 分页导出，导出时按ExportSettings中的预取页数在后台预取之后的页
+	 *
+	 * @param exportPageSource the export page source
+	 * @param exportPageSize   每页的条数
+	 * @return the sheet settings
+	 */
+	public SheetSettings addExportData(PageSource exportPageSource, Integer exportPageSize){
+		this.exportData = null;
+		this.exportIterator = null;
+		this.exportStream = null;
+		this.exportPageSource = exportPageSource;
+		this.exportPageSize = exportPageSize;
+		return this;
+	}
+
+	/**
+	 * Gets export page source.
+	 *
+	 * @return the export page source
+	 */
+	public PageSource getExportPageSource() {
+		return exportPageSource;
+	}
+
+	/**
+	 * Gets export page size.
+	 *
+	 * @return the export page size
+	 */
+	public Integer getExportPageSize() {
+		return exportPageSize;
+	}
+
+	/**
+	 * 取得导出的数据，未设置数据源时按exportData取得
+	 *
+	 * @return the export iterator
+	 */
+	public Iterator getExportIterator() {
+		if (exportIterator != null) {
+			return exportIterator;
+		}
+		return exportData == null ? null : exportData.iterator();
+	}
+
+	/**
+	 * Gets export stream.
+	 *
+	 * @return the export stream
+	 */
+	public Stream getExportStream() {
+		return exportStream;
 	}
 
 	/**
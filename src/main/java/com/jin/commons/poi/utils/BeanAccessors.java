@@ -0,0 +1,111 @@
+package com.jin.commons.poi.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按类缓存的getter/setter
+ *
+ * @author wujinglei
+ * @ClassName: BeanAccessors
+ * @Description: 每个(类, 属性)只查找一次方法并转换为MethodHandle，调用方取得BeanGetter/BeanSetter后持有，之后的读写不再拼接方法名、查找方法和检查访问权限
+ */
+final class BeanAccessors {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<BeanAccessors> ACCESSORS = new ClassValue<BeanAccessors>() {
+        @Override
+        protected BeanAccessors computeValue(Class<?> type) {
+            return new BeanAccessors(type);
+        }
+    };
+
+    private final Class<?> beanClass;
+
+    private final ConcurrentMap<String, BeanGetter> getters = new ConcurrentHashMap<String, BeanGetter>();
+
+    /**
+     * 属性名 -> (参数类型 -> setter)
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, BeanSetter>> setters = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, BeanSetter>>();
+
+    private BeanAccessors(Class<?> beanClass) {
+        this.beanClass = beanClass;
+    }
+
+    /**
+     * 取得类的访问器
+     *
+     * @param beanClass the bean class
+     * @return the bean accessors
+     */
+    static BeanAccessors of(Class<?> beanClass) {
+        return ACCESSORS.get(beanClass);
+    }
+
+    /**
+     * 取得属性的getter，找不到方法时抛出IllegalArgumentException
+     *
+     * @param propertyName the property name
+     * @return the bean getter
+     */
+    BeanGetter getter(String propertyName) {
+        BeanGetter getter = getters.get(propertyName);
+        if (getter == null) {
+            String getterMethodName = "get" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+            getter = new BeanGetter(beanClass, unreflect(getterMethodName).asType(GETTER_TYPE));
+            BeanGetter existing = getters.putIfAbsent(propertyName, getter);
+            if (existing != null) {
+                getter = existing;
+            }
+        }
+        return getter;
+    }
+
+    /**
+     * 取得属性的setter，找不到方法时抛出IllegalArgumentException
+     *
+     * @param propertyName the property name
+     * @param propertyType setter的参数类型
+     * @return the bean setter
+     */
+    BeanSetter setter(String propertyName, Class<?> propertyType) {
+        ConcurrentMap<Class<?>, BeanSetter> typeSetters = setters.get(propertyName);
+        if (typeSetters == null) {
+            setters.putIfAbsent(propertyName, new ConcurrentHashMap<Class<?>, BeanSetter>());
+            typeSetters = setters.get(propertyName);
+        }
+        BeanSetter setter = typeSetters.get(propertyType);
+        if (setter == null) {
+            String setterMethodName = "set" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+            setter = new BeanSetter(beanClass, unreflect(setterMethodName, propertyType).asType(SETTER_TYPE), propertyType);
+            BeanSetter existing = typeSetters.putIfAbsent(propertyType, setter);
+            if (existing != null) {
+                setter = existing;
+            }
+        }
+        return setter;
+    }
+
+    /**
+     * 循环向上转型查找方法并转换为MethodHandle
+     */
+    private MethodHandle unreflect(String methodName, Class<?>... parameterTypes) {
+        Method method = BeanUtils.getAccessibleMethod(beanClass, methodName, parameterTypes);
+        if (method == null) {
+            throw new IllegalArgumentException("Could not find method [" + methodName + "] on target [" + beanClass.getName() + "]");
+        }
+        try {
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.jin.commons.poi.utils;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * 已解析的getter
+ *
+ * @author wujinglei
+ * @ClassName: BeanGetter
+ * @Description: 一个(类, 属性)对应一个实例，由BeanUtils.getter取得后由调用方持有，读取时直接调用MethodHandle
+ */
+public final class BeanGetter {
+
+    private final Class<?> beanClass;
+
+    private final MethodHandle handle;
+
+    BeanGetter(Class<?> beanClass, MethodHandle handle) {
+        this.beanClass = beanClass;
+        this.handle = handle;
+    }
+
+    /**
+     * 解析时的类
+     *
+     * @return the bean class
+     */
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 调用Getter方法
+     *
+     * @param obj the obj
+     * @return the object
+     */
+    public Object get(Object obj) {
+        try {
+            return handle.invokeExact(obj);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.jin.commons.poi.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * 已解析的setter
+ *
+ * @author wujinglei
+ * @ClassName: BeanSetter
+ * @Description: 一个(类, 属性, 参数类型)对应一个实例，由BeanUtils.setter取得后由调用方持有，写入时直接调用MethodHandle
+ */
+public final class BeanSetter {
+
+    private final Class<?> beanClass;
+
+    private final MethodHandle handle;
+
+    /**
+     * 参数的包装类型，用于检查值的类型
+     */
+    private final Class<?> valueType;
+
+    private final boolean primitive;
+
+    BeanSetter(Class<?> beanClass, MethodHandle handle, Class<?> propertyType) {
+        this.beanClass = beanClass;
+        this.handle = handle;
+        this.valueType = propertyType.isPrimitive() ? MethodType.methodType(propertyType).wrap().returnType() : propertyType;
+        this.primitive = propertyType.isPrimitive();
+    }
+
+    /**
+     * 解析时的类
+     *
+     * @return the bean class
+     */
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 调用Setter方法
+     *
+     * @param obj   the obj
+     * @param value the value
+     */
+    public void set(Object obj, Object value) {
+        // 与Method.invoke一致，参数类型不符时抛出IllegalArgumentException
+        if (value == null ? primitive : !valueType.isInstance(value)) {
+            throw new IllegalArgumentException("argument type mismatch: " + valueType.getName() + " <- " + (value == null ? "null" : value.getClass().getName()));
+        }
+        try {
+            handle.invokeExact(obj, value);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -20,18 +20,17 @@ public class BeanUtils {
     }
 
     /**
-     * 调用Getter方法
+     * 调用Getter方法，getter按类缓存
      *
      * @param obj          the obj
      * @param propertyName the property name
      * @return object object
      */
     public static Object invokeGetter(Object obj, String propertyName) {
-        if (Map.class.isAssignableFrom(obj.getClass())) {
+        if (obj instanceof Map) {
             return ((Map) obj).get(propertyName);
         }else {
-            String getterMethodName = get(propertyName);
-            return invokeMethod(obj, getterMethodName, new Class[]{}, new Object[]{});
+            return BeanAccessors.of(obj.getClass()).getter(propertyName).get(obj);
         }
     }
 
@@ -43,7 +42,7 @@ public class BeanUtils {
      * @param value        the value
      */
     public static void invokeSetter(Object obj, String propertyName, Object value) {
-        if (Map.class.isAssignableFrom(obj.getClass())) {
+        if (obj instanceof Map) {
             ((Map) obj).put(propertyName, value);
         }else {
             invokeSetter(obj, propertyName, value, null);
@@ -61,8 +60,30 @@ public class BeanUtils {
      */
     public static void invokeSetter(Object obj, String propertyName, Object value, Class<?> propertyType) {
         Class<?> type = propertyType != null ? propertyType : value.getClass();
-        String setterMethodName = set(propertyName);
-        invokeMethod(obj, setterMethodName, new Class[]{type}, new Object[]{value});
+        BeanAccessors.of(obj.getClass()).setter(propertyName, type).set(obj, value);
+    }
+
+    /**
+     * 取得类的属性的Getter，同一(类, 属性)只解析一次，多次读取时由调用方持有返回值
+     *
+     * @param beanClass    the bean class
+     * @param propertyName the property name
+     * @return the bean getter
+     */
+    public static BeanGetter getter(Class<?> beanClass, String propertyName) {
+        return BeanAccessors.of(beanClass).getter(propertyName);
+    }
+
+    /**
+     * 取得类的属性的Setter，同一(类, 属性, 参数类型)只解析一次，多次写入时由调用方持有返回值
+     *
+     * @param beanClass    the bean class
+     * @param propertyName the property name
+     * @param propertyType setter的参数类型
+     * @return the bean setter
+     */
+    public static BeanSetter setter(Class<?> beanClass, String propertyName, Class<?> propertyType) {
+        return BeanAccessors.of(beanClass).setter(propertyName, propertyType);
     }
 
     /**
@@ -355,25 +376,4 @@ public class BeanUtils {
         return new RuntimeException("Unexpected Checked Exception.", e);
     }
 
-    /**
-     * 实体的getXXX方法
-     *
-     * @param name 成员变量名
-     * @return string string
-     */
-    private static String get(String name) {
-        String get = "get" + (name.charAt(0) + "").toUpperCase() + name.substring(1);//get+变量名的第一个字母大写
-        return get;
-    }
-
-    /**
-     * 实体的setXXX方法
-     *
-     * @param name 成员变量名
-     * @return string string
-     */
-    private static String set(String name) {
-        return "set" + (name.charAt(0) + "").toUpperCase() + name.substring(1);//get+变量名的第一个字母大写
-    }
-
 }
@@ -5,47 +5,33 @@ import com.jin.commons.poi.model.DatePattern;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public class CellDataConverter {
 
     /**
-     * 匹配yyyy-MM-dd
+     * 各线程按格式缓存的SimpleDateFormat，SimpleDateFormat不是线程安全的
      */
-    private static final String DATE_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])$";
-    /**
-     * 匹配yyyy/MM/dd
-     */
-    private static final String DATE_REG_2 = "^[1-9]\\d{3}/(0[1-9]|1[0-2])/(0[1-9]|[1-2][0-9]|3[0-1])$";
-    /**
-     * 匹配y/M/d
-     */
-    private static final String DATE_REG_SIMPLE_2 = "^[1-9]\\d{3}/([1-9]|1[0-2])/([1-9]|[1-2][0-9]|3[0-1])$";
-    /**
-     * 匹配HH:mm:ss
-     */
-    private static final String TIME_SEC_REG = "^(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d$";
-    /**
-     * 匹配yyyy-MM-dd HH:mm:ss
-     */
-    private static final String DATE_TIME_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])\\s" +
-            "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d$";
-    /**
-     * 匹配yyyy-MM-dd HH:mm:ss.SSS
-     */
-    private static final String DATE_TIME_MSEC_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])\\s" +
-            "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}$";
-    /**
-     * 匹配yyyy-MM-dd'T'HH:mm:ss.SSS
-     */
-    private static final String DATE_TIME_MSEC_T_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T" +
-            "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}$";
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> DATE_FORMATS = new ThreadLocal<Map<String, SimpleDateFormat>>() {
+        @Override
+        protected Map<String, SimpleDateFormat> initialValue() {
+            return new HashMap<String, SimpleDateFormat>();
+        }
+    };
+
     /**
-     * 匹配yyyy-MM-dd'T'HH:mm:ss.SSS'Z'
+     * 各线程解析日期时复用的Calendar，与SimpleDateFormat一样使用默认时区并宽松处理日期
      */
-    private static final String DATE_TIME_MSEC_T_Z_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T" +
-            "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}Z$";
+    private static final ThreadLocal<Calendar> PARSE_CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
 
 
     /**
@@ -58,8 +44,7 @@ public class CellDataConverter {
      * @return 返回格式化后的时间字符串
      */
     public static String date2Str(Date date, String format) {
-        SimpleDateFormat sdf = new SimpleDateFormat(format);
-        return sdf.format(date);
+        return getDateFormat(format).format(date);
     }
 
     /**
@@ -71,8 +56,42 @@ public class CellDataConverter {
      * @return 返回格式化后的时间字符串
      */
     public static String date2Str(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_SEC.getValue());
-        return sdf.format(date);
+        return getDateFormat(DatePattern.DATE_FORMAT_SEC.getValue()).format(date);
+    }
+
+    /**
+     * <p>将{@link SimpleDateFormat}的格式转换为Excel单元格的日期格式</p>
+     * <p>引号中的文字转为双引号，毫秒S转为0，上午/下午a转为AM/PM，H转为h</p>
+     *
+     * @param pattern {@link SimpleDateFormat}的格式
+     * @return Excel单元格的日期格式
+     */
+    public static String datePattern2ExcelFormat(String pattern) {
+        StringBuilder format = new StringBuilder(pattern.length() + 8);
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    format.append("\\'");
+                    i++;
+                } else {
+                    format.append('"');
+                    quoted = !quoted;
+                }
+            } else if (quoted) {
+                format.append(c);
+            } else if (c == 'S') {
+                format.append('0');
+            } else if (c == 'H') {
+                format.append('h');
+            } else if (c == 'a') {
+                format.append("AM/PM");
+            } else {
+                format.append(c);
+            }
+        }
+        return format.toString();
     }
 
     /**
@@ -86,9 +105,8 @@ public class CellDataConverter {
      */
     public static Date str2Date(String strDate, String format) {
         Date date = null;
-        SimpleDateFormat sdf = new SimpleDateFormat(format);
         try {
-            date = sdf.parse(strDate);
+            date = getDateFormat(format).parse(strDate);
         } catch (ParseException e) {
             e.printStackTrace();
         }
@@ -114,36 +132,156 @@ public class CellDataConverter {
      */
     public static Date str2Date(String strDate) throws ParseException {
         strDate = strDate.trim();
-        SimpleDateFormat sdf = null;
-        if (Pattern.matches(DATE_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY.getValue());
+        int length = strDate.length();
+        // HH:mm:ss
+        if (length == 8) {
+            if (isTime(strDate, 0)) {
+                return toDate(1970, 1, 1, digits(strDate, 0, 2), digits(strDate, 3, 2), digits(strDate, 6, 2), 0);
+            }
+            return parseSlashDate(strDate);
         }
-        if (Pattern.matches(DATE_REG_2,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY_2.getValue());
+        if (length < 8 || !isYear(strDate)) {
+            return null;
         }
-        if (Pattern.matches(DATE_REG_SIMPLE_2,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY_SIMPLE.getValue());
+        if (strDate.charAt(4) == '/') {
+            return parseSlashDate(strDate);
         }
-        if (Pattern.matches(TIME_SEC_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.TIME_FORMAT_SEC.getValue());
+        // yyyy-MM-dd
+        if (strDate.charAt(4) != '-' || length < 10 || strDate.charAt(7) != '-'
+                || !isMonth(strDate, 5) || !isDay(strDate, 8)) {
+            return null;
         }
-        if (Pattern.matches(DATE_TIME_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_SEC.getValue());
+        int year = digits(strDate, 0, 4);
+        int month = digits(strDate, 5, 2);
+        int day = digits(strDate, 8, 2);
+        if (length == 10) {
+            return toDate(year, month, day, 0, 0, 0, 0);
         }
-        if (Pattern.matches(DATE_TIME_MSEC_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC.getValue());
+        // yyyy-MM-dd HH:mm:ss[.SSS] 或 yyyy-MM-dd'T'HH:mm:ss.SSS['Z']
+        char separator = strDate.charAt(10);
+        boolean tSeparator = separator == 'T';
+        if (!tSeparator && !Character.isWhitespace(separator) || length < 19 || !isTime(strDate, 11)) {
+            return null;
         }
-        if (Pattern.matches(DATE_TIME_MSEC_T_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC_T.getValue());
+        if (!tSeparator && separator != ' ') {
+            // 格式中为空格，其他空白字符无法解析
+            throw new ParseException("Unparseable date: \"" + strDate + "\"", 10);
         }
-        if (Pattern.matches(DATE_TIME_MSEC_T_Z_REG,strDate)) {
-            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC_T_Z.getValue());
+        int hour = digits(strDate, 11, 2);
+        int minute = digits(strDate, 14, 2);
+        int second = digits(strDate, 17, 2);
+        if (length == 19) {
+            return tSeparator ? null : toDate(year, month, day, hour, minute, second, 0);
         }
-        if (null != sdf) {
-            return sdf.parse(strDate);
-        }else {
+        if (strDate.charAt(19) != '.' || length < 23 || !isDigits(strDate, 20, 3)) {
+            return null;
+        }
+        int millisecond = digits(strDate, 20, 3);
+        if (length == 23 || (length == 24 && tSeparator && strDate.charAt(23) == 'Z')) {
+            return toDate(year, month, day, hour, minute, second, millisecond);
+        }
+        return null;
+    }
+
+    /**
+     * yyyy/MM/dd 或 y/M/d
+     */
+    private static Date parseSlashDate(String strDate) {
+        int length = strDate.length();
+        if (length < 8 || length > 10 || !isYear(strDate) || strDate.charAt(4) != '/') {
+            return null;
+        }
+        int daySeparator = strDate.indexOf('/', 5);
+        int monthLength = daySeparator - 5;
+        int dayLength = length - daySeparator - 1;
+        if (monthLength < 1 || monthLength > 2 || dayLength < 1 || dayLength > 2
+                || !isDigits(strDate, 5, monthLength) || !isDigits(strDate, daySeparator + 1, dayLength)) {
+            return null;
+        }
+        int month = digits(strDate, 5, monthLength);
+        int day = digits(strDate, daySeparator + 1, dayLength);
+        boolean padded = monthLength == 2 && dayLength == 2;
+        // yyyy/MM/dd 的月、日都是两位；y/M/d 的月、日在10以下时不补0
+        boolean monthMatched = month >= 1 && month <= 12 && (padded || monthLength == 1 || month >= 10);
+        boolean dayMatched = day >= 1 && day <= 31 && (padded || dayLength == 1 || day >= 10);
+        if (!monthMatched || !dayMatched) {
             return null;
         }
+        return toDate(digits(strDate, 0, 4), month, day, 0, 0, 0, 0);
+    }
+
+    private static Date toDate(int year, int month, int day, int hour, int minute, int second, int millisecond) {
+        Calendar calendar = PARSE_CALENDAR.get();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millisecond);
+        return calendar.getTime();
+    }
+
+    private static boolean isYear(String str) {
+        return str.charAt(0) >= '1' && str.charAt(0) <= '9' && isDigits(str, 1, 3);
+    }
+
+    /**
+     * 两位的月份 01-12
+     */
+    private static boolean isMonth(String str, int start) {
+        if (!isDigits(str, start, 2)) {
+            return false;
+        }
+        int month = digits(str, start, 2);
+        return month >= 1 && month <= 12;
+    }
+
+    /**
+     * 两位的日 01-31
+     */
+    private static boolean isDay(String str, int start) {
+        if (!isDigits(str, start, 2)) {
+            return false;
+        }
+        int day = digits(str, start, 2);
+        return day >= 1 && day <= 31;
+    }
+
+    /**
+     * HH:mm:ss
+     */
+    private static boolean isTime(String str, int start) {
+        return isDigits(str, start, 2) && digits(str, start, 2) <= 23
+                && str.charAt(start + 2) == ':' && isDigits(str, start + 3, 2) && str.charAt(start + 3) <= '5'
+                && str.charAt(start + 5) == ':' && isDigits(str, start + 6, 2) && str.charAt(start + 6) <= '5';
+    }
+
+    private static boolean isDigits(String str, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digits(String str, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            value = value * 10 + (str.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 当前线程中格式对应的SimpleDateFormat
+     */
+    private static SimpleDateFormat getDateFormat(String format) {
+        Map<String, SimpleDateFormat> formats = DATE_FORMATS.get();
+        SimpleDateFormat sdf = formats.get(format);
+        if (sdf == null) {
+            sdf = new SimpleDateFormat(format);
+            formats.put(format, sdf);
+        }
+        return sdf;
     }
 
     /**
@@ -184,6 +322,42 @@ public class CellDataConverter {
         return bigDecimal;
     }
 
+    /**
+     * 数字单元格的文本，与scientificNotation(String.valueOf(number))的结果一致
+     *
+     * @param number the number
+     * @return the string
+     */
+    public static String number2Str(double number) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            return String.valueOf(number);
+        }
+        return BigDecimal.valueOf(number).toPlainString();
+    }
+
+    /**
+     * 数字单元格按文本读取，与matchNumber2Varchar(number2Str(number))的结果一致
+     *
+     * @param number the number
+     * @return the string
+     */
+    public static String number2Varchar(double number) {
+        if (isSafeLong(number)) {
+            return Long.toString((long) number);
+        }
+        return matchNumber2Varchar(number2Str(number));
+    }
+
+    /**
+     * 是否是可以由double准确表示的整数(绝对值小于2^53)
+     *
+     * @param number the number
+     * @return the boolean
+     */
+    public static boolean isSafeLong(double number) {
+        return number == Math.rint(number) && Math.abs(number) < 9007199254740992d;
+    }
+
     public static String matchNumber2Varchar(String numberStr){
         boolean flg = numberStr.endsWith(".0");
         if (flg){
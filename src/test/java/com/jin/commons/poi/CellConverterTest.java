@@ -0,0 +1,134 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.CellDataType;
+import com.jin.commons.poi.utils.CellDataConverter;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 数字单元格的转换
+ *
+ * @author wujinglei
+ * @ClassName: CellConverterTest
+ * @Description: convertNumber与原来先转为文本、处理科学计数法再解析的结果比较
+ */
+public class CellConverterTest {
+
+    private static final double TWO_53 = 9007199254740992d;
+
+    private static final double[] NUMBERS = {
+            0d, -0d, 1d, -1d, 0.1d, -0.1d, 1.5d, 98.76d, 1234.5d, 0.08d, 1e-7d, 1.5e-7d, 3e-10d, 100d, 1000d, 1e7d, 1.0e10d, 1.5e20d, 1e22d,
+            4401d, 110101199003074477d, 13800000000d,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE + 1d, Integer.MIN_VALUE - 1d,
+            TWO_53 - 1, -(TWO_53 - 1), TWO_53, -TWO_53, TWO_53 + 2, 123456789012345678d, Long.MAX_VALUE, Long.MIN_VALUE,
+            Double.MIN_VALUE, Double.MAX_VALUE
+    };
+
+    /**
+     * 原来数字单元格的文本：String.valueOf后处理科学计数法
+     */
+    private static String legacyText(double number) {
+        String text = String.valueOf(number);
+        if (Pattern.matches("^-?\\d+(\\.\\d+)?(E-?\\d+)?$", text)) {
+            text = new BigDecimal(text).toPlainString();
+        }
+        return text;
+    }
+
+    /**
+     * 原来按文本转换的结果，无法转换时为异常的类型
+     */
+    private static Object legacyConvert(CellConverter converter, CellDataType cellDataType, double number) {
+        String text = legacyText(number);
+        if (cellDataType == CellDataType.VARCHAR) {
+            return CellDataConverter.matchNumber2Varchar(text);
+        }
+        try {
+            return converter.convert(text, null, 0);
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private static void assertSameAsText(CellDataType cellDataType, Class cellClass) {
+        CellConverter converter = CellConverter.of(cellDataType, cellClass, "key");
+        for (double number : NUMBERS) {
+            Object value = converter.convertNumber(number);
+            if (value != null) {
+                Object expected = legacyConvert(converter, cellDataType, number);
+                assertEquals(cellDataType + " " + number, expected, value);
+                assertEquals(cellDataType + " " + number, expected.getClass(), value.getClass());
+            }
+        }
+    }
+
+    @Test
+    public void varchar() {
+        assertSameAsText(CellDataType.VARCHAR, String.class);
+        assertEquals("110101199003074480", CellConverter.of(CellDataType.VARCHAR, String.class, "key").convertNumber(110101199003074477d));
+        assertEquals("0", CellConverter.of(CellDataType.VARCHAR, String.class, "key").convertNumber(-0d));
+    }
+
+    @Test
+    public void bigDecimal() {
+        assertSameAsText(CellDataType.NUMBER, BigDecimal.class);
+        CellConverter converter = CellConverter.of(CellDataType.NUMBER, BigDecimal.class, "key");
+        // Double.toString为1.0E10，BigDecimal的scale为负数时按0处理
+        assertEquals(0, ((BigDecimal) converter.convertNumber(1.0e10d)).scale());
+        assertEquals(new BigDecimal("10000000000"), converter.convertNumber(1.0e10d));
+        assertEquals(new BigDecimal("0.0"), converter.convertNumber(-0d));
+    }
+
+    @Test
+    public void doubleValue() {
+        assertSameAsText(CellDataType.NUMBER, Double.class);
+        // -0.0按0处理
+        assertEquals(Double.valueOf(0d), CellConverter.of(CellDataType.NUMBER, Double.class, "key").convertNumber(-0d));
+    }
+
+    @Test
+    public void floatUsesText() {
+        assertNull(CellConverter.of(CellDataType.NUMBER, Float.class, "key").convertNumber(1.5d));
+    }
+
+    @Test
+    public void integer() {
+        assertSameAsText(CellDataType.INTEGER, Integer.class);
+        CellConverter converter = CellConverter.of(CellDataType.INTEGER, Integer.class, "key");
+        assertEquals(Integer.MAX_VALUE, converter.convertNumber(Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE, converter.convertNumber(Integer.MIN_VALUE));
+        assertEquals(0, converter.convertNumber(-0d));
+        // 超出范围、带小数时按文本转换
+        assertNull(converter.convertNumber(Integer.MAX_VALUE + 1d));
+        assertNull(converter.convertNumber(Integer.MIN_VALUE - 1d));
+        assertNull(converter.convertNumber(1.5d));
+    }
+
+    @Test
+    public void bigint() {
+        assertSameAsText(CellDataType.BIGINT, Long.class);
+        CellConverter converter = CellConverter.of(CellDataType.BIGINT, Long.class, "key");
+        assertEquals(Long.valueOf(9007199254740991L), converter.convertNumber(TWO_53 - 1));
+        assertEquals(Long.valueOf(13800000000L), converter.convertNumber(13800000000d));
+        // 2^53及以上无法确定原来的整数，按文本转换
+        assertNull(converter.convertNumber(TWO_53));
+        assertNull(converter.convertNumber(110101199003074477d));
+        assertNull(converter.convertNumber(0.5d));
+    }
+
+    @Test
+    public void fastPathCoversSafeIntegers() {
+        CellConverter converter = CellConverter.of(CellDataType.BIGINT, Long.class, "key");
+        for (double number : NUMBERS) {
+            if (CellDataConverter.isSafeLong(number)) {
+                assertNotNull(String.valueOf(number), converter.convertNumber(number));
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.CellRule;
+import com.jin.commons.poi.model.CellValidator;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * CellRule的校验
+ *
+ * @author wujinglei
+ * @ClassName: CellRuleValidatorsTest
+ * @Description: 与原来按String.valueOf后Long.parseLong、Integer.parseInt、Double.parseDouble能否成功的结果比较
+ */
+public class CellRuleValidatorsTest {
+
+    private static final Object[] VALUES = {
+            null, "", "  ", "\t", "12", " 12", "12 ", "+12", "-12", "+", "-", "007", "1.0", "1e3", "abc", "1_000", "1,000", "١٢",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809", "99999999999999999999",
+            "2147483647", "2147483648", "-2147483648", "-2147483649",
+            ".5", "5.", ".", "1e", "1e+", "1E-5", "-1.5E+10", " 1.5 ", "\t2\n", "1.5f", "1.5D", "1.5x", "NaN", "-Infinity", "+Infinity", "nan",
+            "0x1F", "0x1p3", "0x1.8p1", "0x",
+            Long.valueOf(5L), Long.valueOf(Long.MAX_VALUE), Long.valueOf(3000000000L), Integer.valueOf(-7), Short.valueOf((short) 3), Byte.valueOf((byte) 1),
+            new BigDecimal("12"), new BigDecimal("12.0"), new BigDecimal("1E+3"), new BigDecimal("3000000000"), new BigDecimal("9223372036854775808"),
+            Double.valueOf(1d), Double.valueOf(Double.NaN), Float.valueOf(1.5f), Boolean.TRUE, new Date(0L), new StringBuilder("42"), new StringBuilder(" ")
+    };
+
+    private static boolean legacyLong(Object value) {
+        String text = String.valueOf(value);
+        if (StringUtils.isBlank(text)) {
+            return true;
+        }
+        try {
+            Long.parseLong(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean legacyInteger(Object value) {
+        String text = String.valueOf(value);
+        if (StringUtils.isBlank(text)) {
+            return true;
+        }
+        try {
+            Integer.parseInt(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean legacyDouble(Object value) {
+        String text = String.valueOf(value);
+        if (StringUtils.isBlank(text)) {
+            return true;
+        }
+        try {
+            Double.parseDouble(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "null" : value.getClass().getSimpleName() + "[" + value + "]";
+    }
+
+    @Test
+    public void longRule() {
+        CellValidator validator = CellRuleValidators.of(CellRule.LONG, null);
+        for (Object value : VALUES) {
+            String message = validator.validate(value);
+            assertEquals(describe(value), legacyLong(value), message == null);
+            if (message != null) {
+                assertEquals("当前列预设值不是长整型", message);
+            }
+        }
+    }
+
+    @Test
+    public void integerRule() {
+        CellValidator validator = CellRuleValidators.of(CellRule.INTEGER, null);
+        for (Object value : VALUES) {
+            String message = validator.validate(value);
+            assertEquals(describe(value), legacyInteger(value), message == null);
+            if (message != null) {
+                assertEquals("当前列预设值不是整型", message);
+            }
+        }
+    }
+
+    @Test
+    public void doubleRule() {
+        CellValidator validator = CellRuleValidators.of(CellRule.DOUBLE, null);
+        for (Object value : VALUES) {
+            String message = validator.validate(value);
+            assertEquals(describe(value), legacyDouble(value), message == null);
+            if (message != null) {
+                assertEquals("当前列预设值不是浮点型", message);
+            }
+        }
+    }
+
+    @Test
+    public void requiredRule() {
+        CellValidator validator = CellRuleValidators.of(CellRule.REQUIRED, null);
+        assertEquals("当前列不能为空", validator.validate(null));
+        assertEquals("当前列不能为空", validator.validate(""));
+        assertEquals("当前列不能为空", validator.validate("  "));
+        assertNull(validator.validate("a"));
+        assertNull(validator.validate(Integer.valueOf(0)));
+    }
+
+    @Test
+    public void equalsToDoesNotFallThrough() {
+        // 原来EQUALSTO缺少break，相等的文本还会按LONG、INTEGER、DOUBLE校验而出错
+        CellValidator validator = CellRuleValidators.of(CellRule.EQUALSTO, "abc");
+        assertNull(validator.validate("abc"));
+        assertEquals("当前列预设值abc与读取出的值abd不相等", validator.validate("abd"));
+        assertEquals("当前列预设值abc与读取出的值null不相等", validator.validate(null));
+        assertNull(CellRuleValidators.of(CellRule.EQUALSTO, "3000000000").validate("3000000000"));
+    }
+
+    @Test
+    public void longDoesNotFallThroughToInteger() {
+        // 原来LONG缺少break，超出int范围的长整型还会按INTEGER校验而出错
+        CellValidator validator = CellRuleValidators.of(CellRule.LONG, null);
+        assertNull(validator.validate("3000000000"));
+        assertNull(validator.validate(Long.valueOf(3000000000L)));
+    }
+
+    @Test
+    public void noRule() {
+        assertNull(CellRuleValidators.of(null, null));
+    }
+}
@@ -0,0 +1,137 @@
+package com.jin.commons.poi;
+
+import com.jin.commons.poi.model.CellSettings;
+import com.jin.commons.poi.model.ErrorRecord;
+import com.jin.commons.poi.model.ImportSettings;
+import com.jin.commons.poi.model.SheetSettings;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 导入时下拉文字转换为值
+ *
+ * @author wujinglei
+ * @ClassName: SelectIndexTest
+ * @Description: 由模板导出下拉数据后填写数据行再导入，工作簿读取与流式读取都按下拉数据转换
+ */
+public class SelectIndexTest {
+
+    @ClassRule
+    public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+    private static File file;
+
+    @BeforeClass
+    public static void createFile() throws IOException {
+        Map<String, String> status = new LinkedHashMap<String, String>();
+        status.put("0", "未办理");
+        status.put("1", "办理中");
+        List<Map<String, Object>> rules = new ArrayList<Map<String, Object>>();
+        rules.add(rule("100", "一灵灵", "A0001"));
+        rules.add(rule("101", "一灵一", "A0001"));
+        rules.add(rule("200", "2灵灵", "A0002"));
+
+        SheetSettings sheetSettings = new SheetSettings("select");
+        sheetSettings.setCellSettings(new CellSettings[]{
+                new CellSettings("name", "name"),
+                new CellSettings("companyId", "companyId").addCellSelect(new String[]{"A0001", "A0002"}),
+                new CellSettings("ruleId", "ruleId").addCellSelect("id", "name", rules).setSelectBind("key", "companyId"),
+                new CellSettings("status", "status").addCellSelect(status)
+        });
+        Workbook workbook = OfficeIoUtils.exportXlsxTemplate(sheetSettings).getResultWorkbook();
+        Sheet sheet = workbook.getSheet("select");
+        addRow(sheet, 1, "r1", "A0001", "一灵一", "办理中");
+        addRow(sheet, 2, "r2", "A0002", "2灵灵", "未办理");
+        // 联动下拉中不属于所选公司的文字
+        addRow(sheet, 3, "r3", "A0001", "2灵灵", "未办理");
+        // 不在下拉中的文字
+        addRow(sheet, 4, "r4", "A0002", "2灵灵", "不存在");
+        addRow(sheet, 5, "r5", "A0001", "一灵灵", "");
+
+        file = FOLDER.newFile("select.xlsx");
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            workbook.write(outputStream);
+        } finally {
+            outputStream.close();
+            workbook.close();
+        }
+    }
+
+    private static Map<String, Object> rule(String id, String name, String key) {
+        Map<String, Object> rule = new HashMap<String, Object>();
+        rule.put("id", id);
+        rule.put("name", name);
+        rule.put("key", key);
+        return rule;
+    }
+
+    private static void addRow(Sheet sheet, int rowIndex, String... values) {
+        Row row = sheet.createRow(rowIndex);
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    private static SheetSettings importSettings() {
+        SheetSettings sheetSettings = new SheetSettings("select");
+        sheetSettings.setCellSettings(new CellSettings[]{
+                new CellSettings("name", "name"),
+                new CellSettings("companyId", "companyId").isSelect(),
+                new CellSettings("ruleId", "ruleId").isSelect().setSelectBind("key", "companyId"),
+                new CellSettings("status", "status").isSelect()
+        });
+        return sheetSettings;
+    }
+
+    private static void assertSelectValues(OfficeIoResult result) {
+        List importList = result.getImportList();
+        assertEquals(3, importList.size());
+        assertRow((Map) importList.get(0), "r1", "A0001", "101", "1");
+        assertRow((Map) importList.get(1), "r2", "A0002", "200", "0");
+        // 空单元格不查找下拉
+        assertRow((Map) importList.get(2), "r5", "A0001", "100", "");
+
+        assertEquals(2, result.getErrors().size());
+        ErrorRecord cascadeError = (ErrorRecord) result.getErrors().get(0);
+        assertEquals("C4", cascadeError.getAdress());
+        assertEquals("无法正常处理对应的数据：Cell Value[2灵灵] is not in select list", cascadeError.getErrorMsg());
+        ErrorRecord selectError = (ErrorRecord) result.getErrors().get(1);
+        assertEquals("D5", selectError.getAdress());
+        assertEquals("无法正常处理对应的数据：Cell Value[不存在] is not in select list", selectError.getErrorMsg());
+    }
+
+    private static void assertRow(Map row, String name, String companyId, String ruleId, String status) {
+        assertEquals(name, row.get("name"));
+        assertEquals(companyId, row.get("companyId"));
+        assertEquals(ruleId, row.get("ruleId"));
+        assertEquals(status, row.get("status"));
+    }
+
+    @Test
+    public void workbookImport() {
+        assertSelectValues(OfficeIoUtils.importXlsx(file, new SheetSettings[]{importSettings()}, new ImportSettings()));
+    }
+
+    @Test
+    public void streamingImport() {
+        assertSelectValues(OfficeIoUtils.importXlsx(file, new SheetSettings[]{importSettings()}, new ImportSettings().streaming()));
+    }
+}
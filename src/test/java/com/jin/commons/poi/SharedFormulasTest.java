@@ -0,0 +1,131 @@
+package com.jin.commons.poi;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.SharedFormula;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 共享公式的移动
+ *
+ * @author wujinglei
+ * @ClassName: SharedFormulasTest
+ * @Description: 与工作簿读取(XSSFCell.getCellFormula)展开共享公式的结果比较
+ */
+public class SharedFormulasTest {
+
+    private static XSSFWorkbook workbook;
+
+    private static XSSFEvaluationWorkbook evaluationWorkbook;
+
+    @BeforeClass
+    public static void createWorkbook() {
+        workbook = new XSSFWorkbook();
+        workbook.createSheet("Sheet1");
+        workbook.createSheet("Data");
+        workbook.createSheet("My Data");
+        workbook.createSheet("It's");
+        evaluationWorkbook = XSSFEvaluationWorkbook.create(workbook);
+    }
+
+    @AfterClass
+    public static void closeWorkbook() throws IOException {
+        workbook.close();
+    }
+
+    /**
+     * 工作簿读取时共享公式的展开方式
+     */
+    private static String poiShift(String formula, int rowOffset, int columnOffset) {
+        Ptg[] ptgs = FormulaParser.parse(formula, evaluationWorkbook, FormulaType.CELL, 0);
+        Ptg[] shifted = new SharedFormula(SpreadsheetVersion.EXCEL2007).convertSharedFormulas(ptgs, rowOffset, columnOffset);
+        return FormulaRenderer.toFormulaString(evaluationWorkbook, shifted);
+    }
+
+    private static void assertSameAsWorkbook(String formula, int rowOffset, int columnOffset) {
+        assertEquals(formula + " (" + rowOffset + "," + columnOffset + ")", poiShift(formula, rowOffset, columnOffset),
+                SharedFormulas.shift(formula, rowOffset, columnOffset));
+    }
+
+    @Test
+    public void relativeReferences() {
+        assertEquals("B3+C4", SharedFormulas.shift("A2+B3", 1, 1));
+        assertSameAsWorkbook("A2+B3", 1, 1);
+        assertSameAsWorkbook("A2*B2-C2/D2", 3, 0);
+        assertSameAsWorkbook("A2*B2-C2/D2", 0, 2);
+        assertSameAsWorkbook("Z100+AA100", 5, 3);
+    }
+
+    @Test
+    public void absoluteReferences() {
+        assertEquals("$A$1+B$1+$A2+B2", SharedFormulas.shift("$A$1+A$1+$A1+A1", 1, 1));
+        assertSameAsWorkbook("$A$1+A$1+$A1+A1", 1, 1);
+        assertSameAsWorkbook("$A$1+A$1+$A1+A1", 4, 7);
+    }
+
+    @Test
+    public void ranges() {
+        assertEquals("SUM(B3:C$5)", SharedFormulas.shift("SUM(A2:B$5)", 1, 1));
+        assertSameAsWorkbook("SUM(A2:B$5)", 1, 1);
+        assertSameAsWorkbook("SUM($A2:B$5)", 2, 1);
+        assertSameAsWorkbook("AVERAGE(A2:A3)+MAX(C2:D10)", 3, 2);
+    }
+
+    @Test
+    public void wholeColumnAndRowRanges() {
+        // 工作簿读取时整列会写成A$1:A$1048576，只比较移动结果
+        assertEquals("SUM(B:B)+SUM(3:4)", SharedFormulas.shift("SUM(A:A)+SUM(2:3)", 1, 1));
+        assertEquals("SUM($A:B)+SUM($2:4)", SharedFormulas.shift("SUM($A:A)+SUM($2:3)", 1, 1));
+    }
+
+    @Test
+    public void sheetQualifiedReferences() {
+        // 工作簿读取展开共享公式时会去掉sheet名称，只比较移动结果
+        assertEquals("Data!B2*2", SharedFormulas.shift("Data!A1*2", 1, 1));
+        assertEquals("'My Data'!C5+'It''s'!D6", SharedFormulas.shift("'My Data'!B3+'It''s'!C4", 2, 1));
+        assertEquals("VLOOKUP(A6,Data!$A$1:$B$9,2,0)", SharedFormulas.shift("VLOOKUP(A2,Data!$A$1:$B$9,2,0)", 4, 0));
+        assertEquals("SUM(Data!B2:C3)", SharedFormulas.shift("SUM(Data!A1:B2)", 1, 1));
+    }
+
+    @Test
+    public void functionNamesAndStringLiterals() {
+        assertEquals("IF(B3>0,\"A1\",D3)", SharedFormulas.shift("IF(A2>0,\"A1\",C2)", 1, 1));
+        assertSameAsWorkbook("IF(A2>0,\"A1\",C2)", 1, 1);
+        assertSameAsWorkbook("IF(A2=\"say \"\"B2\"\"\",C2,\"\")", 2, 0);
+        assertSameAsWorkbook("LOG10(A2)+ATAN2(B2,A2)", 1, 2);
+    }
+
+    @Test
+    public void noOffset() {
+        assertEquals("SUM(A:A)+1.5E+3", SharedFormulas.shift("SUM(A:A)+1.5E+3", 0, 0));
+    }
+
+    @Test
+    public void referencesMovedOffSheet() {
+        assertEquals("#REF!+B2", SharedFormulas.shift("XFD1+A1", 1, 1));
+        assertEquals("#REF!", SharedFormulas.shift("A2", -2, 0));
+        assertEquals("A1", SharedFormulas.shift("B2", -1, -1));
+    }
+
+    @Test
+    public void missingMaster() {
+        SharedFormulas sharedFormulas = new SharedFormulas();
+        assertNull(sharedFormulas.getFormula("0", 2, 1));
+        sharedFormulas.addMaster("0", "A2*2", 1, 1);
+        assertEquals("A2*2", sharedFormulas.getFormula("0", 1, 1));
+        assertEquals("A4*2", sharedFormulas.getFormula("0", 3, 1));
+        assertEquals("C3*2", sharedFormulas.getFormula("0", 2, 3));
+    }
+}
@@ -0,0 +1,157 @@
+package com.jin.commons.poi.utils;
+
+import com.jin.commons.poi.model.DatePattern;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 字符串时间转换
+ *
+ * @author wujinglei
+ * @ClassName: CellDataConverterTest
+ * @Description: str2Date与原正则匹配加SimpleDateFormat的结果比较
+ */
+public class CellDataConverterTest {
+
+    private static final String DATE_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])$";
+
+    private static final String DATE_REG_2 = "^[1-9]\\d{3}/(0[1-9]|1[0-2])/(0[1-9]|[1-2][0-9]|3[0-1])$";
+
+    private static final String DATE_REG_SIMPLE_2 = "^[1-9]\\d{3}/([1-9]|1[0-2])/([1-9]|[1-2][0-9]|3[0-1])$";
+
+    private static final String TIME_SEC_REG = "^(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d$";
+
+    private static final String DATE_TIME_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])\\s"
+            + "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d$";
+
+    private static final String DATE_TIME_MSEC_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])\\s"
+            + "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}$";
+
+    private static final String DATE_TIME_MSEC_T_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T"
+            + "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}$";
+
+    private static final String DATE_TIME_MSEC_T_Z_REG = "^[1-9]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T"
+            + "(20|21|22|23|[0-1]\\d):[0-5]\\d:[0-5]\\d\\.\\d{3}Z$";
+
+    /**
+     * 原来的实现：按正则逐个匹配，匹配到的最后一个格式用SimpleDateFormat解析
+     */
+    private static Date legacyStr2Date(String strDate) throws ParseException {
+        strDate = strDate.trim();
+        SimpleDateFormat sdf = null;
+        if (Pattern.matches(DATE_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY.getValue());
+        }
+        if (Pattern.matches(DATE_REG_2, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY_2.getValue());
+        }
+        if (Pattern.matches(DATE_REG_SIMPLE_2, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_DAY_SIMPLE.getValue());
+        }
+        if (Pattern.matches(TIME_SEC_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.TIME_FORMAT_SEC.getValue());
+        }
+        if (Pattern.matches(DATE_TIME_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_SEC.getValue());
+        }
+        if (Pattern.matches(DATE_TIME_MSEC_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC.getValue());
+        }
+        if (Pattern.matches(DATE_TIME_MSEC_T_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC_T.getValue());
+        }
+        if (Pattern.matches(DATE_TIME_MSEC_T_Z_REG, strDate)) {
+            sdf = new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC_T_Z.getValue());
+        }
+        return sdf == null ? null : sdf.parse(strDate);
+    }
+
+    /**
+     * 解析结果或异常的类型
+     */
+    private static Object outcome(String strDate, boolean legacy) {
+        try {
+            return legacy ? legacyStr2Date(strDate) : CellDataConverter.str2Date(strDate);
+        } catch (ParseException e) {
+            return ParseException.class;
+        }
+    }
+
+    private static void assertSameAsLegacy(String... values) {
+        for (String value : values) {
+            assertEquals("[" + value + "]", outcome(value, true), outcome(value, false));
+        }
+    }
+
+    @Test
+    public void acceptedPatterns() throws ParseException {
+        String[] values = {
+                // yyyy-MM-dd
+                "2017-07-14", "1900-01-01", "9999-12-31", " 2017-07-14 ",
+                // yyyy/MM/dd
+                "2017/07/14", "2017/12/01",
+                // y/M/d
+                "2017/7/4", "2017/12/4", "2017/7/14", "2017/10/31",
+                // HH:mm:ss
+                "00:00:00", "09:05:07", "23:59:59",
+                // yyyy-MM-dd HH:mm:ss
+                "2017-07-14 10:20:30", "2017-07-14 23:59:59",
+                // yyyy-MM-dd HH:mm:ss.SSS
+                "2017-07-14 10:20:30.123", "2017-07-14 00:00:00.000",
+                // yyyy-MM-dd'T'HH:mm:ss.SSS
+                "2017-07-14T10:20:30.123",
+                // yyyy-MM-dd'T'HH:mm:ss.SSS'Z'
+                "2017-07-14T10:20:30.123Z"
+        };
+        for (String value : values) {
+            assertNotNull(value, CellDataConverter.str2Date(value));
+        }
+        assertSameAsLegacy(values);
+    }
+
+    @Test
+    public void lenientCalendarDates() {
+        // 正则只检查日在01-31之间，SimpleDateFormat宽松解析时顺延到下个月
+        assertSameAsLegacy("2017-02-30", "2016-02-29", "2017-04-31", "2017/02/31", "2017/2/30");
+    }
+
+    @Test
+    public void rejectedValues() throws ParseException {
+        String[] values = {
+                "", "   ", "abc", "2017", "0017-07-14", "2017-7-14", "2017-07-4", "2017-13-01", "2017-00-10", "2017-07-32", "2017-07-00",
+                "2017/07/4", "2017/7/04", "2017/13/1", "2017/0/1", "2017/1/0", "2017/1/32", "2017//1", "2017/1/",
+                "24:00:00", "23:60:00", "23:00:60", "9:05:07", "09:05",
+                "2017-07-14 10:20", "2017-07-14T10:20:30", "2017-07-14 10:20:30Z", "2017-07-14 10:20:30.12", "2017-07-14 10:20:30.1234",
+                "2017-07-14 10:20:30.123Z", "2017-07-14T10:20:30.123X", "2017-07-14x10:20:30", "2017-07-14  10:20:30", "2017-07-14 24:00:00",
+                "2017-07-14 10:20:30.abc", "2017-07-14x", "2017.07.14", "20170714", "１２３４-07-14"
+        };
+        for (String value : values) {
+            assertNull("[" + value + "]", CellDataConverter.str2Date(value));
+        }
+        assertSameAsLegacy(values);
+    }
+
+    @Test
+    public void whitespaceSeparator() {
+        // 正则的\s接受制表符，格式中为空格，两种实现都抛出ParseException
+        assertEquals(ParseException.class, outcome("2017-07-14\t10:20:30", false));
+        assertSameAsLegacy("2017-07-14\t10:20:30", "2017-07-14\t10:20:30.123");
+    }
+
+    @Test
+    public void date2StrRoundTrip() throws ParseException {
+        Date date = CellDataConverter.str2Date("2017-07-14 10:20:30.123");
+        assertEquals("2017-07-14 10:20:30", CellDataConverter.date2Str(date));
+        assertEquals("2017-07-14", CellDataConverter.date2Str(date, DatePattern.DATE_FORMAT_DAY.getValue()));
+        assertEquals(new SimpleDateFormat(DatePattern.DATE_FORMAT_MSEC_T_Z.getValue()).format(date),
+                CellDataConverter.date2Str(date, DatePattern.DATE_FORMAT_MSEC_T_Z.getValue()));
+    }
+}